@@ -0,0 +1,391 @@
+package MancalaGame;
+
+/****************************************************************************
+ * BoardView Class
+ *
+ * Purpose: This class is a single lightweight component that draws the whole
+ * board: player 1's store on the left, player 1's houses along the top (pit
+ * 1 to pit 6, left to right), player 2's houses along the bottom (pit 13 to
+ * pit 8) and player 2's store on the right. The pit shapes are worked out
+ * from the component's size every time it changes, so the board scales with
+ * the window, and a press is mapped to a pit by testing the shapes.
+ *
+ * Everything that does not change during a game (the board and the empty
+ * pits) is painted once into a back buffer, again only when the size
+ * changes. A paint copies the buffer and draws the marbles and counts of the
+ * pits inside the clip, so repainting one pit costs one pit.
+ *
+ * A move is animated marble by marble: the pit is emptied, then a
+ * javax.swing.Timer frame loop (about 60 frames per second) moves one marble
+ * at a time along the sowing path, repainting only the area the marble left
+ * and the area it moved to, and the pit it lands in. Once the last marble
+ * has landed the board is set to the final position (captures and the end
+ * of game sweep happen at once).
+ *
+ * Hints (hint mode) are drawn on top: a score above each house that has one
+ * and a ring around the best move, until they are set again or cleared.
+ * All methods must be called on the event dispatch thread.
+ *
+ * Methods:
+ * BoardView() - constructor of this class
+ * setPitListener(PitListener) - returns void
+ * setPits(int[]) - returns void
+ * setHints(int[], int) - returns void
+ * animateMove(int[], int, int, int[]) - returns void
+ * finishAnimation() - returns void
+ * isAnimating() - returns boolean
+ * pitAt(int, int) - returns int
+ * paintComponent(Graphics) - returns void
+ *
+ ****************************************************************************/
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+public class BoardView extends JComponent {
+	/**
+	 * Generated serial version UID
+	 */
+	private static final long serialVersionUID = -2186339508721765417L;
+
+	/**
+	 * Told when a pit is pressed
+	 */
+	public interface PitListener {
+		void pitPressed(int pitNum);
+	}
+
+	private static final int FRAME_MILLIS = 16;  // about 60 frames per second
+	private static final int FRAMES_PER_MARBLE = 6;  // frames one marble takes from pit to pit
+	private static final int COLUMNS = Mancala.N_PITS + 1;  // a store, the houses, the other store
+
+	private static final Color BOARD_COLOR = new Color(139, 90, 43), PIT_COLOR = Color.WHITE;
+	private static final Color PLAYER_1_COLOR = Color.RED, PLAYER_2_COLOR = Color.BLUE;
+	private static final Color[] MARBLE_COLORS = {
+		new Color(46, 139, 87), new Color(218, 165, 32), new Color(70, 130, 180), new Color(178, 34, 34),
+		new Color(123, 104, 238), new Color(255, 140, 0)
+	};
+	private static final Color HINT_COLOR = new Color(0, 100, 0), BEST_MOVE_COLOR = new Color(255, 215, 0);
+	private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+	public static final int NO_HINT = Integer.MIN_VALUE;  // a pit without a hint
+
+	private final int[] pits = new int[Mancala.BOARD_SIZE];  // counts shown now
+	private PitListener listener;
+	private final int[] hints = new int[Mancala.BOARD_SIZE];  // hint scores shown now
+	private int bestMove = -1;  // pit with the ring, -1 for none
+
+	// geometry, recomputed when the size changes
+	private int layoutWidth = -1, layoutHeight = -1;
+	private final RoundRectangle2D.Double[] pitShapes = new RoundRectangle2D.Double[Mancala.BOARD_SIZE];
+	private final Rectangle[] pitBounds = new Rectangle[Mancala.BOARD_SIZE];  // repaint areas
+	private int marbleSize;
+	private Font countFont, hintFont;
+	private BasicStroke ringStroke;
+	private BufferedImage background;  // the board without marbles
+
+	// animation state
+	private final Timer timer = new Timer(FRAME_MILLIS, event -> nextFrame());
+	private final int[] finalPits = new int[Mancala.BOARD_SIZE];
+	private int fromPit, player, marblesLeft, step, frame, lastPit;
+	private final Rectangle flyingBounds = new Rectangle();  // empty when no marble is in the air
+
+	// constructor
+	public BoardView() {
+		setOpaque(false);
+		Arrays.fill(hints, NO_HINT);
+		timer.setCoalesce(true);
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent event) {
+				if (!isEnabled() || listener == null)
+					return;
+				int pitNum = pitAt(event.getX(), event.getY());
+				if (pitNum >= 0) {
+					finishAnimation();  // the move is played on the final position
+					listener.pitPressed(pitNum);
+				}
+			}
+		});
+	}
+
+	public void setPitListener(PitListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Shows a position at once (any running animation is dropped), repainting only the pits that changed
+	 */
+	public void setPits(int[] newPits) {
+		stopAnimation();
+		showPits(newPits);
+	}
+
+	/**
+	 * Shows a score on every pit of the array (NO_HINT for none) and a ring around the best
+	 * move (-1 for none); null clears them. Only the pits whose hint changed are repainted.
+	 */
+	public void setHints(int[] newHints, int newBestMove) {
+		int best = (newHints == null) ? -1 : newBestMove;
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			int hint = (newHints == null) ? NO_HINT : newHints[pitNum];
+			if (hints[pitNum] != hint || (pitNum == bestMove) != (pitNum == best)) {
+				hints[pitNum] = hint;
+				repaintPit(pitNum);
+			}
+		}
+		bestMove = best;
+	}
+
+	/**
+	 * Animates the move from pitNum by player, from position before to position after
+	 */
+	public void animateMove(int[] before, int pitNum, int player, int[] after) {
+		stopAnimation();
+		System.arraycopy(after, 0, finalPits, 0, finalPits.length);
+		showPits(before);
+		if (before[pitNum] == 0) {
+			showPits(after);
+			return;
+		}
+		fromPit = lastPit = pitNum;
+		this.player = player;
+		marblesLeft = before[pitNum];
+		step = 0;
+		frame = 0;
+		pits[pitNum] = 0;  // all marbles are picked up
+		repaintPit(pitNum);
+		timer.start();
+	}
+
+	/**
+	 * Jumps to the end of the running animation
+	 */
+	public void finishAnimation() {
+		if (timer.isRunning()) {
+			stopAnimation();
+			showPits(finalPits);
+		}
+	}
+
+	public boolean isAnimating() {
+		return timer.isRunning();
+	}
+
+	/**
+	 * Returns the pit at a point of the component, or -1 if there is none
+	 */
+	public int pitAt(int x, int y) {
+		updateLayout();
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+			if (pitShapes[pitNum].contains(x, y))
+				return pitNum;
+		return -1;
+	}
+
+	/**
+	 * Stops the timer and removes the marble in the air
+	 */
+	private void stopAnimation() {
+		timer.stop();
+		if (!flyingBounds.isEmpty()) {
+			repaint(flyingBounds);
+			flyingBounds.setSize(0, 0);
+		}
+	}
+
+	/**
+	 * Copies a position into the shown counts, repainting only the pits that changed
+	 */
+	private void showPits(int[] newPits) {
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			if (pits[pitNum] != newPits[pitNum]) {
+				pits[pitNum] = newPits[pitNum];
+				repaintPit(pitNum);
+			}
+		}
+	}
+
+	/**
+	 * One frame of the animation: moves the marble in the air, or lands it
+	 */
+	private void nextFrame() {
+		if (marblesLeft == 0) {
+			stopAnimation();
+			showPits(finalPits);
+			return;
+		}
+		updateLayout();
+		int toPit = Sowing.STANDARD.getPit(player, fromPit, step % Sowing.STANDARD.getCycleLength());
+		frame++;
+
+		Rectangle oldBounds = new Rectangle(flyingBounds);
+		if (frame < FRAMES_PER_MARBLE) {
+			// move the marble a little further from the last pit towards the next one
+			double t = (double) frame / FRAMES_PER_MARBLE;
+			double x = centerX(lastPit) + (centerX(toPit) - centerX(lastPit)) * t;
+			double y = centerY(lastPit) + (centerY(toPit) - centerY(lastPit)) * t;
+			flyingBounds.setBounds((int) x - marbleSize / 2, (int) y - marbleSize / 2, marbleSize + 1, marbleSize + 1);
+		} else {
+			// land it
+			flyingBounds.setSize(0, 0);
+			pits[toPit]++;
+			repaintPit(toPit);
+			lastPit = toPit;
+			step++;
+			marblesLeft--;
+			frame = 0;
+		}
+		if (!oldBounds.isEmpty())
+			repaint(oldBounds);
+		if (!flyingBounds.isEmpty())
+			repaint(flyingBounds);
+	}
+
+	private void repaintPit(int pitNum) {
+		updateLayout();
+		repaint(pitBounds[pitNum]);
+	}
+
+	private double centerX(int pitNum) {
+		return pitShapes[pitNum].getCenterX();
+	}
+
+	private double centerY(int pitNum) {
+		return pitShapes[pitNum].getCenterY();
+	}
+
+	/**
+	 * Works out the pit shapes for the current size and repaints the back buffer (only when the size changed)
+	 */
+	private void updateLayout() {
+		int width = getWidth(), height = getHeight();
+		if (width == layoutWidth && height == layoutHeight)
+			return;
+		layoutWidth = width;
+		layoutHeight = height;
+
+		// square cells: COLUMNS across, two rows, centered, with room for the board's rim
+		double cell = Math.max(1, Math.min(width / (COLUMNS + 1 / 6.0), height / (2 + 1 / 6.0)));
+		double gap = cell / 12;
+		double left = (width - cell * COLUMNS + gap) / 2, top = (height - cell * 2 + gap) / 2;
+		double size = cell - gap;
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			double x, y, h = size;
+			if (pitNum == Mancala.STORE1) {  // left column, both rows
+				x = left;
+				y = top;
+				h = 2 * cell - gap;
+			} else if (pitNum == Mancala.STORE2) {  // right column, both rows
+				x = left + (COLUMNS - 1) * cell;
+				y = top;
+				h = 2 * cell - gap;
+			} else if (pitNum < Mancala.STORE2) {  // player 1: top row, left to right
+				x = left + pitNum * cell;
+				y = top;
+			} else {  // player 2: bottom row, right to left
+				x = left + (Mancala.BOARD_SIZE - pitNum) * cell;
+				y = top + cell;
+			}
+			pitShapes[pitNum] = new RoundRectangle2D.Double(x, y, size, h, size, size);
+			pitBounds[pitNum] = pitShapes[pitNum].getBounds();
+			pitBounds[pitNum].grow(3, 3);  // room for the best move ring
+		}
+		marbleSize = Math.max(2, (int) (size / 7));
+		countFont = new Font("Arial", Font.PLAIN, Math.max(8, (int) (size / 3.5)));
+		hintFont = new Font("Arial", Font.BOLD, Math.max(7, (int) (size / 5)));
+		ringStroke = new BasicStroke(Math.max(2, (float) (size / 25)));
+
+		background = null;
+		if (width > 0 && height > 0) {
+			background = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = background.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setColor(BOARD_COLOR);
+			g.fill(new RoundRectangle2D.Double(left - gap, top - gap, cell * COLUMNS + gap, cell * 2 + gap, cell / 2, cell / 2));
+			g.setColor(PIT_COLOR);
+			for (RoundRectangle2D.Double shape : pitShapes)
+				g.fill(shape);
+			g.dispose();
+		}
+	}
+
+	@Override
+	protected void paintComponent(Graphics graphics) {
+		updateLayout();
+		if (background == null)
+			return;
+		Graphics2D g = (Graphics2D) graphics.create();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, layoutWidth, layoutHeight);
+		g.drawImage(background, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+				clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+
+		g.setFont(countFont);
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+			if (pitBounds[pitNum].intersects(clip))
+				paintPit(g, pitNum);
+
+		if (!flyingBounds.isEmpty() && flyingBounds.intersects(clip)) {
+			g.setColor(MARBLE_COLORS[step % MARBLE_COLORS.length]);
+			g.fill(new Ellipse2D.Double(flyingBounds.x, flyingBounds.y, marbleSize, marbleSize));
+		}
+		g.dispose();
+	}
+
+	/**
+	 * Draws the marbles of a pit in a sunflower pattern (as many as fit) and its count
+	 */
+	private void paintPit(Graphics2D g, int pitNum) {
+		RoundRectangle2D.Double shape = pitShapes[pitNum];
+		double cx = shape.getCenterX(), cy = shape.getCenterY();
+		double rx = shape.width / 2 - marbleSize, ry = shape.height / 2 - marbleSize;
+		double spacing = marbleSize * 0.6;
+		for (int marble = 0; marble < pits[pitNum]; marble++) {
+			double r = spacing * Math.sqrt(marble + 0.5);
+			double dx = r * Math.cos(marble * GOLDEN_ANGLE), dy = r * Math.sin(marble * GOLDEN_ANGLE) * (ry / rx);
+			if (Math.abs(dx) > rx || Math.abs(dy) > ry)
+				break;  // the pit is full; the count tells the rest
+			g.setColor(MARBLE_COLORS[marble % MARBLE_COLORS.length]);
+			g.fill(new Ellipse2D.Double(cx + dx - marbleSize / 2.0, cy + dy - marbleSize / 2.0, marbleSize, marbleSize));
+		}
+
+		String count = String.valueOf(pits[pitNum]);
+		FontMetrics metrics = g.getFontMetrics();
+		g.setColor((pitNum < Mancala.STORE2) ? PLAYER_1_COLOR : PLAYER_2_COLOR);
+		g.drawString(count, (float) (cx - metrics.stringWidth(count) / 2.0),
+				(float) (shape.y + shape.height - metrics.getDescent() - 2));
+
+		if (pitNum == bestMove) {
+			g.setColor(BEST_MOVE_COLOR);
+			g.setStroke(ringStroke);
+			g.draw(shape);
+		}
+		if (hints[pitNum] != NO_HINT) {
+			String hint = (hints[pitNum] > 0 ? "+" : "") + hints[pitNum];
+			g.setFont(hintFont);
+			FontMetrics hintMetrics = g.getFontMetrics();
+			g.setColor(HINT_COLOR);
+			g.drawString(hint, (float) (cx - hintMetrics.stringWidth(hint) / 2.0), (float) (shape.y + hintMetrics.getAscent() + 2));
+			g.setFont(countFont);
+		}
+	}
+}
@@ -6,25 +6,45 @@ package MancalaGame;
  * Mancala Class
  *
  * Purpose: This class implements the rules of Mancala game (see individual
- * methods for different game rules implemented)
+ * methods for different game rules implemented). The board size, starting
+ * marbles, capture rule and store skipping come from a RuleSet; the
+ * constants below describe the standard game, which is the default.
+ * When metrics are switched on (see MancalaGame.metrics.EngineMetrics),
+ * applyMove and checkGameOver report to them (rejected moves are counted
+ * by the callers that reject them, since checkMove is also used to probe).
  *
  * Methods:
  * Mancala() - constructor of this class
+ * Mancala(RuleSet) - constructor for a variant of the game
+ * getRuleSet() - returns RuleSet
  * reset() - returns void
+ * load(int[], int) - returns void
  * switchPlayers() - returns void
  * findPitNum(int, int) - returns int
  * getNumOfMarbles(int, int) - returns int
- * findNewPit(int, int) - returns int
  * emptyPit(int) - returns boolean
- * checkMove(int, int) - returns MoveType
- * isStore(int) - returns boolean
+ * checkMove(int, int) / checkMove(int) - returns MoveType
+ * legalMoves() - returns int
  * checkResult(int) - returns MoveResult
- * applyMove(int, int) - returns MoveResult
+ * applyMove(int, int) / applyMove(int) - returns MoveResult
+ * makeMove(int, int[], int) - returns MoveResult
+ * unmakeMove(int[], int) - returns void
+ * setPit(int, int) - returns void
+ * addToHouses(int, int) - returns void
+ * playMove(int) - returns int
  * checkGameOver() - returns GameStatus
+ * isTerminal() - returns boolean
+ * getHouseTotal(int) - returns int
+ * getFinalScore(int) - returns int
  * getCurrentPlayer() - returns String
+ * getHash() - returns long
+ * getPit(int) - returns int
+ * getPlayer() - returns int
  *
  ****************************************************************************/
 
+import MancalaGame.metrics.EngineMetrics;
+
 public class Mancala {
 	private int currentPlayer;  // store the current player
 
@@ -45,7 +65,24 @@ public class Mancala {
 	public static final int STORE1 = 0;  // index of board pit that refers to player 1's store
 	public static final int STORE2 = STORE1 + N_PITS;  // index of board pit that refers to player 2's store
 
+	/**
+	 * Undo records (see makeMove) are one int each: source pit (bits 0-4),
+	 * marbles sown (5-13), marbles in the opposite pit before a capture
+	 * (14-22), previous player - 1 (23) and the MoveResult ordinal (24-25)
+	 */
+	public static final int UNDO_SIZE = 1;
+	private static final int PIT_MASK = 0x1F, COUNT_MASK = 0x1FF;
+	private static final int SEEDS_SHIFT = 5, CAPTURED_SHIFT = 14, PLAYER_SHIFT = 23, RESULT_SHIFT = 24;
+	private static final MoveResult[] RESULTS = MoveResult.values();
+
+	private final RuleSet rules;
+	private final Sowing sowing;  // tables of the rule set, kept in fields for the move code
+	private final Zobrist zobrist;
+	private final int boardSize;
+
 	private int[] shadowBoard;  // do the actual operation for the game
+	private long hash;  // Zobrist hash of the shadow board and the current player
+	private int houseTotal1, houseTotal2;  // marbles in player 1's and player 2's houses
 
 	/**
 	 * all types of movements
@@ -63,10 +100,26 @@ public class Mancala {
 
 	// constructor
 	public Mancala() {
-		shadowBoard = new int[BOARD_SIZE];  // initialize shadow board
+		this(RuleSet.STANDARD);
+	}
+
+	// constructor for a variant of the game
+	public Mancala(RuleSet rules) {
+		this.rules = rules;
+		sowing = rules.getSowing();
+		zobrist = rules.getZobrist();
+		boardSize = rules.getBoardSize();
+		shadowBoard = new int[boardSize];  // initialize shadow board
 		reset();
 	}
 
+	/**
+	 * Returns the rules this game is played by
+	 */
+	public RuleSet getRuleSet() {
+		return rules;
+	}
+
 	/**
 	 * Sets variable to default state
 	 */
@@ -75,9 +128,25 @@ public class Mancala {
 		currentPlayer = 1;
 
 		// initialize the shadow board
-		for (int i = 0; i < BOARD_SIZE; i++)
-			shadowBoard[i] = INIT_MARBLES;
-		shadowBoard[STORE1] = shadowBoard[STORE2] = 0;
+		for (int i = 0; i < boardSize; i++)
+			shadowBoard[i] = rules.isStore(i) ? 0 : rules.getInitMarbles();
+		houseTotal1 = houseTotal2 = rules.getHousesPerSide() * rules.getInitMarbles();
+		hash = zobrist.hash(shadowBoard, currentPlayer);
+	}
+
+	/**
+	 * Sets the shadow board (one entry per pit of the rule set) and the player to move
+	 */
+	public void load(int[] board, int player) {
+		if (board.length != boardSize || (player != 1 && player != 2))
+			throw new IllegalArgumentException("Invalid position");
+		System.arraycopy(board, 0, shadowBoard, 0, boardSize);
+		currentPlayer = player;
+		gameOver = GameStatus.IN_PROGRESS;
+		houseTotal1 = houseTotal2 = 0;
+		for (int i = 0; i < boardSize; i++)
+			addToHouses(rules.getSide(i), shadowBoard[i]);
+		hash = zobrist.hash(shadowBoard, currentPlayer);
 	}
 
 	/**
@@ -85,13 +154,14 @@ public class Mancala {
 	 */
 	private void switchPlayers() {
 		currentPlayer = (currentPlayer == 1) ? 2 : 1;
+		hash ^= zobrist.getPlayerKey();
 	}
 
 	/**
 	 * Find the pit number (the index number of the shadow board)
 	 */
 	private int findPitNum(int row, int col) {
-		return row == 0 ? col : (BOARD_SIZE - 1 - col); // If row is zero, column is the same as row; otherwise, it's not.
+		return rules.findPitNum(row, col); // If row is zero, column is the same as row; otherwise, it's not.
 	}
 
 	/**
@@ -102,16 +172,6 @@ public class Mancala {
 		return shadowBoard[pitNum];
 	}
 
-	/**
-	 * Find the correct pit to place the marble
-	 */
-	private int findNewPit(int pitNum, int distance) {
-		int newPit = pitNum - distance;
-		while (newPit < 0)
-			newPit += BOARD_SIZE;
-		return newPit;
-	}
-
 	/**
 	 * Returns whether this pit has no marbles
 	 */
@@ -123,11 +183,17 @@ public class Mancala {
 	 * Check for invalid move
 	 */
 	public MoveType checkMove(int row, int col) {
-		int pitNum = findPitNum(row, col);
+		return checkMove(findPitNum(row, col));
+	}
 
+	/**
+	 * Check for invalid move (pit number version)
+	 */
+	public MoveType checkMove(int pitNum) {
 		// Indicate player 1's and 2's bounds
-		boolean inBounds1 = (pitNum > STORE1 && pitNum < STORE1+N_PITS);
-		boolean inBounds2 = (pitNum > STORE2 && pitNum < STORE2+N_PITS);
+		int side = (pitNum >= 0 && pitNum < boardSize) ? rules.getSide(pitNum) : 0;
+		boolean inBounds1 = (side == 1);
+		boolean inBounds2 = (side == 2);
 
 		/* If the current player is correct while the move is in the current player's bounds,
 	 	and the chosen pit is not empty, move is valid */
@@ -147,36 +213,53 @@ public class Mancala {
 	}
 
 	/**
-	 * Is this pit one of the player's stores?
+	 * Returns all legal moves of the player to move as a bitmask: bit pitNum is set for
+	 * every house of the player with marbles in it. Loop over the moves with
+	 * Integer.numberOfTrailingZeros(mask) and mask &= mask - 1.
 	 */
-	private boolean isStore(int pitNum) {
-		return pitNum == STORE1 || pitNum == STORE2;
+	public int legalMoves() {
+		int firstPit = rules.getFirstHouse(currentPlayer);
+		int lastPit = firstPit + rules.getHousesPerSide();
+		int mask = 0;
+		for (int pitNum = firstPit; pitNum < lastPit; pitNum++)
+			mask |= ((-shadowBoard[pitNum]) >>> 31) << pitNum;  // 1 for a pit with marbles, without a branch
+		return mask;
 	}
 
 	/**
 	 * Check for extra turn and capture conditions
 	 */
 	private MoveResult checkResult(int lastPit) {
-		int opposite = BOARD_SIZE - lastPit;  // The directly opposite pit
-		boolean inCPBounds;  // Indicate the current player's bounds
-
-		// If the last marble is dropped in one of the pits of the current player
-		if (currentPlayer == 1)
-			inCPBounds = (lastPit > STORE1 && lastPit < STORE1+N_PITS);
-		else
-			inCPBounds = (lastPit > STORE2 && lastPit < STORE2+N_PITS);
+		int opposite = rules.getOpposite(lastPit);  // The directly opposite pit
+		boolean canCapture;  // Whether the capture rule allows a capture in this pit
+
+		// If the last marble is dropped in one of the pits of the current player (or any house, depending on the rules)
+		switch (rules.getCaptureRule()) {
+		case OWN_SIDE:
+			canCapture = (rules.getSide(lastPit) == currentPlayer);
+			break;
+		case ANY_SIDE:
+			canCapture = !rules.isStore(lastPit);
+			break;
+		default:
+			canCapture = false;
+		}
 
-		if (isStore(lastPit)) {
+		if (lastPit == rules.getStore(currentPlayer)) {
 			// check for extra turn
 			return MoveResult.FREE_TURN;
-		} else if (inCPBounds && shadowBoard[lastPit] == 1 && shadowBoard[opposite] >= 1) {  // both non-empty
+		} else if (canCapture && shadowBoard[lastPit] == 1 && shadowBoard[opposite] >= 1) {  // both non-empty
 			// check for capture
 
 			int numOfMarbles = shadowBoard[opposite] + 1;  // store the total number of stones captured by the current player
 
 			// clear pits
-			shadowBoard[lastPit] = shadowBoard[opposite] = 0;
-			shadowBoard[currentPlayer == 1 ? STORE1 : STORE2] += numOfMarbles;
+			int store = rules.getStore(currentPlayer);
+			addToHouses(rules.getSide(lastPit), -1);
+			addToHouses(rules.getSide(opposite), -(numOfMarbles - 1));
+			setPit(lastPit, 0);
+			setPit(opposite, 0);
+			setPit(store, shadowBoard[store] + numOfMarbles);
 
 			return MoveResult.CAPTURE;
 		} else
@@ -188,69 +271,131 @@ public class Mancala {
 	 */
 	public MoveResult applyMove(int row, int col) {
 		// Find the corresponding pit on the shadow board
-		int pitNum = findPitNum(row, col);
+		return applyMove(findPitNum(row, col));
+	}
 
-		// Move stones
-		int numOfMarbles = shadowBoard[pitNum];  // Number of marbles in the pit of the shadow board
-		int offset = 0;  // Skip the opponent's store
-
-		// Reduce the number of marbles in the selected pit to zero
-		shadowBoard[pitNum] = 0;
-
-		int newPit = -1;
-		for (int moveStep = 1; moveStep <= numOfMarbles; moveStep++) {
-			newPit = findNewPit(pitNum, moveStep+offset);
-
-			if (currentPlayer == 1) {  // if it's player 1's turn
-				if (newPit == STORE2) {  // if the pit is player 2's store
-					offset++;
-					newPit = findNewPit(pitNum, moveStep+offset);
-				}
-			}
-			else {  // if it's player 2's turn
-				if (newPit == STORE1) {  // if the pit is player 1's store
-					offset++;
-					newPit = findNewPit(pitNum, moveStep+offset);
-				}
-			}
-
-			// place one marble into the corresponding pit
-			shadowBoard[newPit]++;
+	/**
+	 * Apply a move from the given pit (pit number version); an empty pit sows nothing and passes the turn (NORMAL)
+	 */
+	public MoveResult applyMove(int pitNum) {
+		if (EngineMetrics.ENABLED) {
+			long start = System.nanoTime();
+			MoveResult result = RESULTS[playMove(pitNum) >>> RESULT_SHIFT];
+			EngineMetrics.moveApplied(result, System.nanoTime() - start);
+			return result;
 		}
+		return RESULTS[playMove(pitNum) >>> RESULT_SHIFT];
+	}
 
-		MoveResult result = checkResult(newPit);  // Move result
-		if (result != MoveResult.FREE_TURN)
+	/**
+	 * Apply a move and write its undo record to undo[offset] (UNDO_SIZE ints)
+	 */
+	public MoveResult makeMove(int pitNum, int[] undo, int offset) {
+		int record = playMove(pitNum);
+		undo[offset] = record;
+		return RESULTS[record >>> RESULT_SHIFT];
+	}
+
+	/**
+	 * Take back the move recorded at undo[offset]; moves must be taken back
+	 * in reverse order, and checkGameOver must not have emptied the board since
+	 */
+	public void unmakeMove(int[] undo, int offset) {
+		int record = undo[offset];
+		int pitNum = record & PIT_MASK;
+		int numOfMarbles = (record >>> SEEDS_SHIFT) & COUNT_MASK;
+		int player = ((record >>> PLAYER_SHIFT) & 1) + 1;
+
+		if (currentPlayer != player)
 			switchPlayers();
-		return result;
+
+		int lastPit = sowing.lastPit(player, pitNum, numOfMarbles);
+		if ((record >>> RESULT_SHIFT) == MoveResult.CAPTURE.ordinal()) {
+			int captured = (record >>> CAPTURED_SHIFT) & COUNT_MASK;  // marbles the opposite pit held
+			int opposite = rules.getOpposite(lastPit);
+			int store = rules.getStore(player);
+			setPit(store, shadowBoard[store] - captured - 1);
+			setPit(lastPit, 1);
+			setPit(opposite, captured);
+			addToHouses(rules.getSide(lastPit), 1);
+			addToHouses(rules.getSide(opposite), captured);
+		}
+
+		// take the marbles back out of the pits (laps = numOfMarbles / cycle length)
+		hash ^= zobrist.sownKeys(shadowBoard, sowing, player, pitNum, numOfMarbles);
+		sowing.unsow(shadowBoard, player, pitNum, numOfMarbles);
+		hash ^= zobrist.sownKeys(shadowBoard, sowing, player, pitNum, numOfMarbles);
+		houseTotal1 -= sowing.housesSown(player, pitNum, numOfMarbles, 1);
+		houseTotal2 -= sowing.housesSown(player, pitNum, numOfMarbles, 2);
+		addToHouses(player, numOfMarbles);
 	}
 
 	/**
-	 * Check and store the game state (whether a player has won)
+	 * Sets a pit and keeps the hash up to date
 	 */
-	public GameStatus checkGameOver() {
-		int remainingMarbles1 = 0, remainingMarbles2 = 0;
+	private void setPit(int pitNum, int numOfMarbles) {
+		hash ^= zobrist.key(pitNum, shadowBoard[pitNum]) ^ zobrist.key(pitNum, numOfMarbles);
+		shadowBoard[pitNum] = numOfMarbles;
+	}
 
-		// check whether player 1's pits are all empty
-		for (int i = STORE1+1; i < STORE2; i++)
-			remainingMarbles1 += shadowBoard[i];
+	/**
+	 * Adds marbles to the house total of a side (nothing for side 0, the stores)
+	 */
+	private void addToHouses(int side, int numOfMarbles) {
+		if (side == 1)
+			houseTotal1 += numOfMarbles;
+		else if (side == 2)
+			houseTotal2 += numOfMarbles;
+	}
 
-		// check whether player 2's pits are all empty
-		for (int i = STORE2+1; i < BOARD_SIZE; i++)
-			remainingMarbles2 += shadowBoard[i];
+	/**
+	 * Apply a move and return its undo record
+	 */
+	private int playMove(int pitNum) {
+		int player = currentPlayer;
+
+		// Move stones (full laps and the remainder come from the precomputed sowing tables)
+		int numOfMarbles = shadowBoard[pitNum];
+		hash ^= zobrist.sownKeys(shadowBoard, sowing, currentPlayer, pitNum, numOfMarbles);  // old pit keys out
+		int newPit = sowing.sow(shadowBoard, currentPlayer, pitNum);
+		addToHouses(currentPlayer, -numOfMarbles);
+		houseTotal1 += sowing.housesSown(currentPlayer, pitNum, numOfMarbles, 1);
+		houseTotal2 += sowing.housesSown(currentPlayer, pitNum, numOfMarbles, 2);
+		hash ^= zobrist.sownKeys(shadowBoard, sowing, currentPlayer, pitNum, numOfMarbles);  // new pit keys in
+
+		int oppositeMarbles = rules.isStore(newPit) ? 0 : shadowBoard[rules.getOpposite(newPit)];  // recorded in case of a capture
+		// Move result (an empty pit sows nothing and just passes the turn)
+		MoveResult result = (numOfMarbles == 0) ? MoveResult.NORMAL : checkResult(newPit);
+		if (result != MoveResult.FREE_TURN)
+			switchPlayers();
 
-		boolean isGameOver = (remainingMarbles1 == 0 || remainingMarbles2 == 0);
+		return pitNum | (numOfMarbles << SEEDS_SHIFT) | (oppositeMarbles << CAPTURED_SHIFT)
+				| ((player - 1) << PLAYER_SHIFT) | (result.ordinal() << RESULT_SHIFT);
+	}
+
+	/**
+	 * Check and store the game state (whether a player has won)
+	 */
+	public GameStatus checkGameOver() {
+		// the house totals are kept up to date by applyMove, so no pit has to be scanned
+		int remainingMarbles1 = houseTotal1, remainingMarbles2 = houseTotal2;
 
 		// clear all pits
-		if (isGameOver) {
-			for (int i = 0; i < BOARD_SIZE; i++)
-				if (!isStore(i))  // as long as pits are not the players' stores
+		if (isTerminal()) {
+			if (EngineMetrics.ENABLED && gameOver == GameStatus.IN_PROGRESS)
+				EngineMetrics.gameFinished();
+			int store1 = rules.getStore(1), store2 = rules.getStore(2);
+			for (int i = 0; i < boardSize; i++)
+				if (!rules.isStore(i))  // as long as pits are not the players' stores
 					shadowBoard[i] = 0;
-			shadowBoard[STORE1] += remainingMarbles1;  // get all of the remained marbles
-			shadowBoard[STORE2] += remainingMarbles2;
+			shadowBoard[store1] += remainingMarbles1;  // get all of the remained marbles
+			shadowBoard[store2] += remainingMarbles2;
+			houseTotal1 = houseTotal2 = 0;
+			hash = zobrist.hash(shadowBoard, currentPlayer);
 
-			if (shadowBoard[STORE1] > shadowBoard[STORE2])
+			if (shadowBoard[store1] > shadowBoard[store2])
 				gameOver = GameStatus.PLAYER1WON;
-			else if (shadowBoard[STORE2] > shadowBoard[STORE1])
+			else if (shadowBoard[store2] > shadowBoard[store1])
 				gameOver = GameStatus.PLAYER2WON;
 			else
 				gameOver = GameStatus.TIED_GAME;
@@ -261,10 +406,52 @@ public class Mancala {
 		return gameOver;
 	}
 
+	/**
+	 * Returns whether one side's houses are all empty (unlike checkGameOver, nothing is changed)
+	 */
+	public boolean isTerminal() {
+		return houseTotal1 == 0 || houseTotal2 == 0;
+	}
+
+	/**
+	 * Returns the number of marbles left in a player's houses
+	 */
+	public int getHouseTotal(int player) {
+		return (player == 1) ? houseTotal1 : houseTotal2;
+	}
+
+	/**
+	 * Returns a player's score if the game ended now (store plus the player's remaining houses)
+	 */
+	public int getFinalScore(int player) {
+		return shadowBoard[rules.getStore(player)] + getHouseTotal(player);
+	}
+
 	/**
 	 * Returns the current player as a string
 	 */
 	public String getCurrentPlayer() {
 		return String.valueOf(currentPlayer);
 	}
+
+	/**
+	 * Returns the Zobrist hash of the current position
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the number of marbles in the pit (index of the shadow board)
+	 */
+	public int getPit(int pitNum) {
+		return shadowBoard[pitNum];
+	}
+
+	/**
+	 * Returns the current player as a number
+	 */
+	public int getPlayer() {
+		return currentPlayer;
+	}
 }
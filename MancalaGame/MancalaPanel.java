@@ -6,13 +6,35 @@ package MancalaGame;
  * MancalaPanel Class
  *
  * Purpose: This class extends JPanel Class and implements Action Listener and Mouse Listener
- * interface. The purpose of this class is to add various components onto the panel (i.e. various
- * buttons and labels), set size, color and various locations of the components and make them
+ * interface. The purpose of this class is to add various components onto the panel (i.e. the
+ * board, buttons and labels), set size, color and various locations of the components and make them
  * react to the actions performed by the user (i.e. mouse clicked, pressed, released, etc.)
+ * The board itself is a BoardView, which draws the pits, finds the pit that was pressed and
+ * animates the moves; it is stretched with the panel when the window is resized.
+ *
+ * The game itself is only touched by a single background engine thread, never by the event
+ * dispatch thread: a click submits the move to the engine, and the engine publishes a snapshot
+ * of the result. Snapshots are coalesced (only the latest one is shown if several arrive before
+ * the event dispatch thread gets to them), and showing one animates the move and only updates
+ * the labels whose values changed.
+ *
+ * Hint mode (the Hints button) keeps a BackgroundAnalyzer searching a copy of the position while
+ * the player thinks. The engine thread restarts it after every move, and a press on the board
+ * stops it at once. A Swing timer picks up its latest result a few times a second and shows the
+ * score of every move and the best move on the board; nothing on the event dispatch thread ever
+ * waits for the analysis. The evaluation weights are loaded from LinearEvaluator.DEFAULT_FILE at
+ * startup if the file exists.
  *
  * Methods:
  * MancalaPanel() - constructor of the class
- * labelAllPits() - returns void
+ * labelAllPits(BoardUpdate) - returns void
+ * doLayout() - returns void
+ * submitMove(int) - returns void
+ * publish(String, int[], int, int) - returns void
+ * showUpdate() - returns void
+ * analyze() - returns void
+ * showHints() - returns void
+ * setHintMode(boolean) - returns void
  * mouseClicked(MouseEvent) - returns void
  * mouseReleased(MouseEvent) - return void
  * mouseEntered(MouseEvent) - return void
@@ -30,19 +52,23 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import MancalaGame.Mancala.MoveResult;
+import MancalaGame.ai.BackgroundAnalyzer;
+import MancalaGame.ai.LinearEvaluator;
+import MancalaGame.metrics.EngineMetrics;
 
 public class MancalaPanel extends JPanel implements ActionListener,MouseListener{
 
@@ -51,18 +77,67 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 	 */
 	private static final long serialVersionUID = 4114089239288622943L;
 
-	private Mancala mancala;
-	private JButton[][] board;  // game board (buttons)
-	private JButton 	exitButton, resetButton;
+	private Mancala mancala;  // only used by the engine thread (and by the constructor before it starts)
+	private BoardView board;  // game board
+	private JButton 	exitButton, resetButton, hintButton;
 	private JLabel 		playerLabel, statusLabel, titleLabel, scoreLabel1, scoreLabel2, infoLabel1, infoLabel2;
 
 	private final static String OK_STATUS = "Please make a move.";  // the initial game status
+	private final static String CLICK_SOUND = "Tiny Button Push-SoundBible.com-513260752.wav";
+	private final static int HINT_REFRESH_MILLIS = 250;  // how often new analysis results are shown
+	private final static int ANALYSIS_TABLE_MB = 64;
 
-	private final static int BUTTON_WIDTH = 110, BUTTON_HEIGHT = 110;
-	private final static int STORE_WIDTH = 110, STORE_HEIGHT = 230;
+	// where the board is on a panel of the window's initial size; it is scaled with the panel
+	private final static int BOARD_X = 200, BOARD_Y = 170, BOARD_WIDTH = 950, BOARD_HEIGHT = 240;
 
 	private final static Color FOREGROUND_JLABEL = Color.WHITE, BACKGROUND_JLABEL = Color.MAGENTA;
-	private final static Color PLAYER_1_COLOR = Color.RED, PLAYER_2_COLOR = Color.BLUE;
+
+	/**
+	 * What the engine thread hands to the event dispatch thread after a move: an immutable copy of the game
+	 */
+	private static final class BoardUpdate {
+		final int[] pits;
+		final int player;
+		final String status;
+		final boolean gameOver;
+		final int[] before;  // position before the move (null if no move was made)
+		final int movePit, mover;
+		final long hash;  // Zobrist hash of the position (to match analysis results)
+
+		BoardUpdate(Mancala mancala, String status, int[] before, int movePit, int mover) {
+			pits = snapshot(mancala);
+			hash = mancala.getHash();
+			player = mancala.getPlayer();
+			this.status = status;
+			gameOver = mancala.isTerminal();
+			this.before = before;
+			this.movePit = movePit;
+			this.mover = mover;
+		}
+
+		static int[] snapshot(Mancala mancala) {
+			int[] pits = new int[Mancala.BOARD_SIZE];
+			for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+				pits[pitNum] = mancala.getPit(pitNum);
+			return pits;
+		}
+	}
+
+	// runs all game logic (and later the computer players) off the event dispatch thread
+	private final ExecutorService engine = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "mancala-engine");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicReference<BoardUpdate> pendingUpdate = new AtomicReference<>();  // latest update not yet shown
+	private BoardUpdate shownUpdate;  // what the components show now (event dispatch thread only)
+	private final SoundManager clickSound = new SoundManager(CLICK_SOUND, SoundManager.DEFAULT_CLIPS);
+
+	// hint mode
+	private final BackgroundAnalyzer analyzer = new BackgroundAnalyzer(Runtime.getRuntime().availableProcessors(), ANALYSIS_TABLE_MB);
+	private volatile boolean hintMode;  // set on the event dispatch thread, read by the engine thread
+	private final Timer hintTimer = new Timer(HINT_REFRESH_MILLIS, event -> showHints());
+	private BackgroundAnalyzer.Analysis shownAnalysis;  // what the board shows now (event dispatch thread only)
 
 	// constructor
 	public MancalaPanel() {
@@ -117,40 +192,12 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 		add(scoreLabel1);
 		add(scoreLabel2);
 
-		// Create JButtons
-		board = new JButton[Mancala.N_PLAYERS][Mancala.STORE2];
-		for (int row = 0; row < Mancala.N_PLAYERS; row++) {
-			for (int column = Mancala.STORE1; column < Mancala.STORE2; column++) {
-				board[row][column] = new JButton("");
-				board[row][column].setFont(new Font("Arial", Font.PLAIN, 40));
-				board[row][column].setBackground(new Color(255, 255, 255));
-				board[row][column].setSize(BUTTON_WIDTH, BUTTON_HEIGHT);
-
-				// add border to the buttons
-				if (row == 0)
-					board[row][column].setForeground(PLAYER_1_COLOR);
-				else
-					board[row][column].setForeground(PLAYER_2_COLOR);
-
-				add(board[row][column]);
-
-				//Set all buttons to work with the event handlers
-				board[row][column].addActionListener(this);
-				board[row][column].addMouseListener(this);
-			}
-		}
-
-		// set the size of the two stores on each side of the board
-		board[0][0].setSize(STORE_WIDTH, STORE_HEIGHT);
-		board[1][6].setSize(STORE_WIDTH, STORE_HEIGHT);
-
-		// set various locations of the buttons
-		for (int column = 0; column < Mancala.N_PITS; column++)
-			board[0][column].setLocation(200 + column*120, 170);
-
-		for (int column = 0; column < Mancala.N_PITS; column++)
-			board[1][column].setLocation(320 + column*120, 290);
-		board[1][6].setLocation(1040, 170);
+		// Create the board
+		board = new BoardView();
+		board.setBounds(BOARD_X, BOARD_Y, BOARD_WIDTH, BOARD_HEIGHT);
+		board.setPitListener(this::submitMove);
+		board.addMouseListener(this);
+		add(board);
 
 		//Add exit button
 		exitButton = new JButton("Exit");
@@ -172,13 +219,34 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 		resetButton.setSize(200,50);
 		add(resetButton);
 
+		//Add hint button to show the computer's analysis of the moves
+		hintButton = new JButton("Hints: Off");
+		hintButton.setActionCommand("Hints");
+		hintButton.setFont(new Font("Arial", Font.PLAIN, 30));
+		hintButton.setForeground(FOREGROUND_JLABEL);
+		hintButton.setBackground(BACKGROUND_JLABEL);
+		hintButton.setLocation(890, 600);
+		hintButton.setSize(200,50);
+		add(hintButton);
+
 		// Add event listeners for the buttons
 		exitButton.addActionListener(this);
 		resetButton.addActionListener(this);
+		hintButton.addActionListener(this);
 		exitButton.addMouseListener(this);
 		resetButton.addMouseListener(this);
+		hintButton.addMouseListener(this);
+
+		// tuned evaluation weights, if there are any
+		if (Files.exists(Paths.get(LinearEvaluator.DEFAULT_FILE))) {
+			try {
+				analyzer.setEvaluator(LinearEvaluator.load(Paths.get(LinearEvaluator.DEFAULT_FILE)));
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Evaluation weights not loaded: " + e.getMessage());  // the store difference is used
+			}
+		}
 
-		labelAllPits();  // set texts to the game board (i.e. two dimensional buttons)
+		labelAllPits(new BoardUpdate(mancala, OK_STATUS, null, -1, 0));  // show the marbles on the game board
 
 		validate();
 	}
@@ -186,14 +254,25 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 	/**
 	 * Label all pits (show the number of marbles in each pit) and update player score labels
 	 */
-	private void labelAllPits() {
-		for (int row = 0; row < Mancala.N_PLAYERS; row++)
-			for (int column = 0; column < Mancala.N_PITS; column++)
-				board[row][column].setText(String.valueOf(mancala.getNumOfMarbles(row, column)));
+	private void labelAllPits(BoardUpdate update) {
+		board.setPits(update.pits);
 
 		// update players' score labels
-		scoreLabel1.setText("Player 1 Score: " + mancala.getNumOfMarbles(0, 0));
-		scoreLabel2.setText("Player 2 Score: " + mancala.getNumOfMarbles(1, 6));
+		scoreLabel1.setText("Player 1 Score: " + update.pits[Mancala.STORE1]);
+		scoreLabel2.setText("Player 2 Score: " + update.pits[Mancala.STORE2]);
+		shownUpdate = update;
+	}
+
+	/**
+	 * Scales the board with the panel (the other components keep their places)
+	 */
+	@Override
+	public void doLayout() {
+		super.doLayout();
+		int width = getWidth(), height = getHeight();
+		if (width > 0 && height > 0)
+			board.setBounds(BOARD_X * width / MancalaWindow.WIDTH, BOARD_Y * height / MancalaWindow.HEIGHT,
+					BOARD_WIDTH * width / MancalaWindow.WIDTH, BOARD_HEIGHT * height / MancalaWindow.HEIGHT);
 	}
 
 	@Override
@@ -201,27 +280,8 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 	 * event handler for mouse clicking
 	 */
 	public void mouseClicked(MouseEvent event) {
-		// add button press sound effect
-		String soundName = "Tiny Button Push-SoundBible.com-513260752.wav";
-		AudioInputStream audioInputStream = null;
-		try {
-			audioInputStream = AudioSystem.getAudioInputStream(new File(soundName).getAbsoluteFile());
-		} catch (UnsupportedAudioFileException | IOException e) {
-			e.printStackTrace();
-		}
-		Clip clip = null;
-		try {
-			clip = AudioSystem.getClip();
-		} catch (LineUnavailableException e) {
-			e.printStackTrace();
-		}
-		try {
-			clip.open(audioInputStream);
-		} catch (LineUnavailableException | IOException e) {
-			e.printStackTrace();
-		}
-		clip.start();  // here the sound starts
-
+		if (event.getComponent().isEnabled())
+			clickSound.play();  // button press sound effect, decoded once and played without blocking
 	}
 
 	public void mouseReleased(MouseEvent arg0) {
@@ -243,99 +303,155 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 	 * event handler for mouse pressing
 	 */
 	public void mousePressed(MouseEvent event) {
-		// Get location of mouse press
-		int x = event.getXOnScreen() - super.getLocationOnScreen().x;
-		int y = event.getYOnScreen() - super.getLocationOnScreen().y;
-
-		int buttonRow, buttonCol;  // Store the location of the clicked button
-		//System.out.println("y: " + y + "\nx: " + x);
-
-		// Determine the row and column of the button
-		if((event.getButton()>0) && (y < 410) && (x < 1150)){
-			if (x < 320) {
-				buttonRow = 0;
-				buttonCol = 0;
-			}
-			else if (x > 1030) {
-				buttonRow = 1;
-				buttonCol = 6;
-			}
-			else {
-				buttonRow = (y-170)/(BUTTON_HEIGHT + 10);
-
-				if (buttonRow == 0)
-					buttonCol = (x-200)/(BUTTON_WIDTH + 10);
-				else
-					buttonCol = ((x-200)/(BUTTON_WIDTH + 10)) - 1;
-			}
-
-			// System.out.println("buttonRow: " + buttonRow + "\nbuttonCol: " + buttonCol + "\n\n");
+		// pits are found by the board itself (see submitMove)
+	}
 
-			switch (mancala.checkMove(buttonRow, buttonCol)) {
-			// if move is valid, apply move and label all pits with a new number of marbles
+	/**
+	 * Plays a move on the engine thread and publishes the result
+	 */
+	private void submitMove(int pitNum) {
+		analyzer.stop();  // free the cores for the move; the engine restarts the analysis on the new position
+		engine.execute(() -> {
+			String status;
+			int[] before = null;
+			int mover = mancala.getPlayer();
+			switch (mancala.checkMove(pitNum)) {
+			// if move is valid, apply move
 			case SUCCESS:
-				MoveResult result = mancala.applyMove(buttonRow, buttonCol);
-				labelAllPits();
+				before = BoardUpdate.snapshot(mancala);
+				MoveResult result = mancala.applyMove(pitNum);
 				if (result == MoveResult.FREE_TURN)
-					statusLabel.setText("Free turn for player " + mancala.getCurrentPlayer() + "!");
+					status = "Free turn for player " + mancala.getCurrentPlayer() + "!";
 				else
-					statusLabel.setText(OK_STATUS);
+					status = OK_STATUS;
 				break;
 
 			// invalid move detected, inform the player
 			case EMPTY_PIT:
-				statusLabel.setText("Invalid Move: Empty pit");
+				status = "Invalid Move: Empty pit";
+				if (EngineMetrics.ENABLED)
+					EngineMetrics.invalidMove();
 				break;
-			case WRONG_PLAYER:
-				statusLabel.setText("Invalid Move: Wrong player side");
+			default:
+				status = "Invalid Move: Wrong player side";
+				if (EngineMetrics.ENABLED)
+					EngineMetrics.invalidMove();
 				break;
 			}
 
-			// switch players
-			playerLabel.setText("Player " + mancala.getCurrentPlayer() + "'s turn");
-
 			switch (mancala.checkGameOver()) {
 			case PLAYER1WON:
-				statusLabel.setText("Player 1 is the winner!");
-
-				// disable mouse listener and action listener for the game board buttons when game over
-				setListeners(false);
+				status = "Player 1 is the winner!";
 				break;
 			case PLAYER2WON:
-				statusLabel.setText("Player 2 is the winner!");
-
-				// disable mouse listener and action listener for the game board buttons when game over
-				setListeners(false);
+				status = "Player 2 is the winner!";
 				break;
 			case TIED_GAME:
-				statusLabel.setText("Tied game!");
-				setListeners(false);
+				status = "Tied game!";
 				break;
 			case IN_PROGRESS:
 				// game is in progress
 				break;
 			}
-			labelAllPits();  // label all pits after shadow board is cleared
-			repaint();
+			publish(status, before, (before == null) ? -1 : pitNum, mover);  // shown after the shadow board is cleared
+		});
+	}
+
+	/**
+	 * Hands a snapshot of the game to the event dispatch thread (engine thread only)
+	 */
+	private void publish(String status, int[] before, int movePit, int mover) {
+		BoardUpdate update = new BoardUpdate(mancala, status, before, movePit, mover);
+		if (pendingUpdate.getAndSet(update) == null)  // otherwise an update is already scheduled and will show this one
+			SwingUtilities.invokeLater(this::showUpdate);
+		if (hintMode)
+			analyze();
+	}
+
+	/**
+	 * Starts analysing a copy of the current position, or stops at the end of the game (engine thread only)
+	 */
+	private void analyze() {
+		if (mancala.isTerminal()) {
+			analyzer.stop();
+			return;
 		}
-		return;
+		PackedBoard position = new PackedBoard();
+		position.load(mancala);
+		analyzer.start(position);
 	}
 
 	/**
-	 * Enable/disable listeners for new game/game over
+	 * Shows the latest analysis if it is for the position on the board (hint timer, event dispatch thread)
 	 */
-	private void setListeners(boolean enable) {
-		for (int row = 0; row < Mancala.N_PLAYERS; row++) {
-			for (int column = 0; column < Mancala.N_PITS; column++) {
-				if (enable) {  // enables listeners
-					board[row][column].addActionListener(this);
-					board[row][column].addMouseListener(this);
-				} else {  // disables listeners
-					board[row][column].removeActionListener(this);
-					board[row][column].removeMouseListener(this);
-				}
-			}
+	private void showHints() {
+		BackgroundAnalyzer.Analysis analysis = analyzer.getLatest();
+		if (analysis == null || analysis == shownAnalysis || analysis.getHash() != shownUpdate.hash || board.isAnimating())
+			return;  // nothing new, an older position, or wait for the move to be drawn
+		int[] hints = new int[Mancala.BOARD_SIZE];
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			int score = analysis.getScore(pitNum);
+			hints[pitNum] = (score == BackgroundAnalyzer.NO_SCORE) ? BoardView.NO_HINT : score;
 		}
+		board.setHints(hints, analysis.getBestMove());
+		board.setToolTipText("Analysis depth " + analysis.getDepth() + ", " + analysis.getNodes() + " positions");
+		shownAnalysis = analysis;
+	}
+
+	/**
+	 * Turns hint mode on or off (event dispatch thread)
+	 */
+	private void setHintMode(boolean on) {
+		hintMode = on;
+		hintButton.setText(on ? "Hints: On" : "Hints: Off");
+		if (on) {
+			hintTimer.start();
+			engine.execute(this::analyze);
+		} else {
+			hintTimer.stop();
+			analyzer.stop();
+			board.setHints(null, -1);
+			board.setToolTipText(null);
+			shownAnalysis = null;
+		}
+	}
+
+	/**
+	 * Shows the latest published snapshot, touching only what changed (event dispatch thread only)
+	 */
+	private void showUpdate() {
+		BoardUpdate update = pendingUpdate.getAndSet(null);
+		if (update == null)
+			return;
+		BoardUpdate shown = shownUpdate;
+
+		if (update.hash != shown.hash) {
+			board.setHints(null, -1);  // the hints were for the old position
+			shownAnalysis = null;
+		}
+		if (update.movePit >= 0)
+			board.animateMove(update.before, update.movePit, update.mover, update.pits);
+		else
+			board.setPits(update.pits);  // repaints only the pits that changed
+		if (update.pits[Mancala.STORE1] != shown.pits[Mancala.STORE1])
+			scoreLabel1.setText("Player 1 Score: " + update.pits[Mancala.STORE1]);
+		if (update.pits[Mancala.STORE2] != shown.pits[Mancala.STORE2])
+			scoreLabel2.setText("Player 2 Score: " + update.pits[Mancala.STORE2]);
+		if (update.player != shown.player)
+			playerLabel.setText("Player " + update.player + "'s turn");
+		statusLabel.setText(update.status);
+
+		// disable the game board when game over (and enable it for a new game)
+		if (update.gameOver != shown.gameOver)
+			setListeners(!update.gameOver);
+		shownUpdate = update;
+	}
+
+	/**
+	 * Enable/disable the board for new game/game over
+	 */
+	private void setListeners(boolean enable) {
+		board.setEnabled(enable);
 	}
 
 	/**
@@ -350,6 +466,9 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 		// Call the method to reset the game
 			resetGame();
 		}
+
+		if (e.getActionCommand().equals("Hints"))
+			setHintMode(!hintMode);
 		return;
 	}
 
@@ -357,12 +476,9 @@ public class MancalaPanel extends JPanel implements ActionListener,MouseListener
 	 * Change everything back to the beginning
 	 */
 	private void resetGame() {
-		mancala.reset();  // set game status to "in progress", set current player to 1, and re-initialize shadow board
-		setListeners(true);
-		labelAllPits();
-
-		// reset texts on the labels
-		statusLabel.setText(OK_STATUS);
-		playerLabel.setText("Player " + mancala.getCurrentPlayer() + "'s turn");
+		engine.execute(() -> {
+			mancala.reset();  // set game status to "in progress", set current player to 1, and re-initialize shadow board
+			publish(OK_STATUS, null, -1, 0);  // labels and listeners are reset when the update is shown
+		});
 	}
 }
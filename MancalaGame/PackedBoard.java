@@ -0,0 +1,395 @@
+package MancalaGame;
+
+/****************************************************************************
+ * PackedBoard Class
+ *
+ * Purpose: This class stores a Mancala position in two longs instead of an
+ * int array. Every pit of the shadow board gets a fixed-width field of
+ * FIELD_BITS bits: pits 0..6 (store 1 and player 1's houses) live in the low
+ * word, pits 7..13 (store 2 and player 2's houses) live in the high word, and
+ * the side to move is kept in the top bit of the low word. Copying a position
+ * is therefore two register moves, and none of the methods below allocate.
+ * Sowing adds precomputed increment words (one per full lap and one per
+ * remainder) to both words, so a move costs the same for any marble count.
+ * The Zobrist hash of the position (same keys as Mancala.getHash()) is kept
+ * in a third word and updated incrementally by every move.
+ * The rules are the same as in Mancala (see Mancala for details).
+ *
+ * Methods:
+ * PackedBoard() - constructor of this class
+ * PackedBoard(PackedBoard) - copy constructor
+ * reset() - returns void
+ * load(Mancala) - returns void
+ * load(int[], int) - returns void
+ * copyFrom(PackedBoard) - returns void
+ * getPit(int) - returns int
+ * getNumOfMarbles(int, int) - returns int
+ * getCurrentPlayer() - returns int
+ * getHouseTotal(int) - returns int
+ * getLow() / getHigh() - returns long
+ * getHash() - returns long
+ * checkMove(int, int) / checkMove(int) - returns MoveType
+ * legalMoves() - returns int
+ * applyMove(int, int) / applyMove(int) - returns MoveResult
+ * checkGameOver() - returns GameStatus
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.Mancala.MoveType;
+
+public class PackedBoard {
+	public static final int FIELD_BITS = 6;  // bits per pit (enough for all 48 marbles of the standard game)
+	public static final int MAX_MARBLES = Mancala.N_PLAYERS * (Mancala.N_PITS - 1) * Mancala.INIT_MARBLES;  // marbles in play
+	private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+	private static final int PLAYER_BIT = 63;  // bit of the low word that holds the side to move (set = player 2)
+	private static final long PLAYER_MASK = 1L << PLAYER_BIT;
+	private static final long HOUSES_MASK = ((1L << (FIELD_BITS * (Mancala.N_PITS - 1))) - 1) << FIELD_BITS;  // houses of one word (store excluded)
+	private static final long HOUSE_SUM = 0x41041041L;  // a one in the lowest bit of each of the six house fields
+	private static final long HOUSE_LOW_BITS = (HOUSE_SUM << FIELD_BITS) * (FIELD_MASK >>> 1);  // low five bits of each house field
+	private static final long HOUSE_TOP_BITS = (HOUSE_SUM << FIELD_BITS) << (FIELD_BITS - 1);  // top bit of each house field
+	private static final int GATHER_SHIFT = 35;
+	private static final long GATHER = 0x2108421L;  // moves the top bit of house field k to bit GATHER_SHIFT + k (see legalMoves)
+
+	private static final int CYCLE = Sowing.STANDARD.getCycleLength();
+	private static final long[] LAP_LOW = new long[Mancala.N_PLAYERS];  // one marble in every pit of a lap
+	private static final long[] LAP_HIGH = new long[Mancala.N_PLAYERS];
+	private static final long[] SOW_LOW = new long[Mancala.N_PLAYERS * Mancala.BOARD_SIZE * CYCLE];  // first n pits of the lap from a pit
+	private static final long[] SOW_HIGH = new long[Mancala.N_PLAYERS * Mancala.BOARD_SIZE * CYCLE];
+
+	static {
+		for (int player = 1; player <= Mancala.N_PLAYERS; player++) {
+			for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+				int base = ((player - 1) * Mancala.BOARD_SIZE + pitNum) * CYCLE;
+				long sowLow = 0, sowHigh = 0;
+				for (int step = 0; step < CYCLE; step++) {
+					SOW_LOW[base + step] = sowLow;
+					SOW_HIGH[base + step] = sowHigh;
+					int newPit = Sowing.STANDARD.getPit(player, pitNum, step);
+					if (newPit < Mancala.STORE2)
+						sowLow += 1L << (newPit * FIELD_BITS);
+					else
+						sowHigh += 1L << ((newPit - Mancala.STORE2) * FIELD_BITS);
+				}
+				LAP_LOW[player - 1] = sowLow;  // same set of pits for every starting pit
+				LAP_HIGH[player - 1] = sowHigh;
+			}
+		}
+	}
+
+	private long low;   // pits STORE1..STORE2-1 and the side to move
+	private long high;  // pits STORE2..BOARD_SIZE-1
+	private long hash;  // Zobrist hash of the position
+
+	// constructor
+	public PackedBoard() {
+		if (MAX_MARBLES > FIELD_MASK)
+			throw new IllegalStateException("Too many marbles for a packed board");
+		reset();
+	}
+
+	// copy constructor
+	public PackedBoard(PackedBoard other) {
+		copyFrom(other);
+	}
+
+	/**
+	 * Sets the board to the starting position (player 1 to move)
+	 */
+	public void reset() {
+		long word = 0;
+		for (int i = 1; i < Mancala.N_PITS; i++)
+			word |= (long) Mancala.INIT_MARBLES << (i * FIELD_BITS);
+		low = high = word;
+		hash = computeHash();
+	}
+
+	/**
+	 * Copies the position (shadow board and current player) of a standard Mancala game
+	 */
+	public void load(Mancala mancala) {
+		if (!RuleSet.STANDARD.equals(mancala.getRuleSet()))
+			throw new IllegalArgumentException("Packed boards only hold games with the standard rules");
+		low = high = 0;
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+			addToPit(pitNum, mancala.getPit(pitNum));
+		if (mancala.getPlayer() == 2)
+			low |= PLAYER_MASK;
+		hash = computeHash();
+	}
+
+	/**
+	 * Loads a shadow board (BOARD_SIZE pits) and the player to move
+	 */
+	public void load(int[] board, int player) {
+		low = high = 0;
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			if (board[pitNum] < 0 || board[pitNum] > MAX_MARBLES)
+				throw new IllegalArgumentException("Pit " + pitNum + " holds " + board[pitNum] + " marbles");
+			addToPit(pitNum, board[pitNum]);
+		}
+		if (player == 2)
+			low |= PLAYER_MASK;
+		hash = computeHash();
+	}
+
+	/**
+	 * Copies another packed board into this one
+	 */
+	public void copyFrom(PackedBoard other) {
+		low = other.low;
+		high = other.high;
+		hash = other.hash;
+	}
+
+	/**
+	 * Returns the number of marbles in the pit (index of the shadow board)
+	 */
+	public int getPit(int pitNum) {
+		if (pitNum < Mancala.STORE2)
+			return (int) ((low >>> (pitNum * FIELD_BITS)) & FIELD_MASK);
+		return (int) ((high >>> ((pitNum - Mancala.STORE2) * FIELD_BITS)) & FIELD_MASK);
+	}
+
+	/**
+	 * Returns the value currently stored at (row, col)
+	 */
+	public int getNumOfMarbles(int row, int col) {
+		return getPit(findPitNum(row, col));
+	}
+
+	/**
+	 * Returns the current player (1 or 2)
+	 */
+	public int getCurrentPlayer() {
+		return (low < 0) ? 2 : 1;  // the player bit is the sign bit of the low word
+	}
+
+	/**
+	 * Returns the number of marbles left in a player's houses
+	 */
+	public int getHouseTotal(int player) {
+		return sumHouses(player == 1 ? low : high);
+	}
+
+	/**
+	 * Returns the low word (store 1, player 1's houses and the side to move)
+	 */
+	public long getLow() {
+		return low;
+	}
+
+	/**
+	 * Returns the high word (store 2 and player 2's houses)
+	 */
+	public long getHigh() {
+		return high;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the position
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Computes the Zobrist hash from scratch
+	 */
+	private long computeHash() {
+		long newHash = (getCurrentPlayer() == 2) ? Zobrist.STANDARD.getPlayerKey() : 0;
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+			newHash ^= Zobrist.STANDARD.key(pitNum, getPit(pitNum));
+		return newHash;
+	}
+
+	/**
+	 * Returns the XOR of the keys of the pits touched by sowing numOfMarbles from pitNum
+	 */
+	private long sownKeys(int player, int pitNum, int numOfMarbles) {
+		int touched = Math.min(numOfMarbles, CYCLE);
+		long keys = (touched < CYCLE) ? Zobrist.STANDARD.key(pitNum, getPit(pitNum)) : 0;
+		for (int step = 0; step < touched; step++) {
+			int newPit = Sowing.STANDARD.getPit(player, pitNum, step);
+			keys ^= Zobrist.STANDARD.key(newPit, getPit(newPit));
+		}
+		return keys;
+	}
+
+	/**
+	 * Find the pit number (the index number of the shadow board)
+	 */
+	private static int findPitNum(int row, int col) {
+		return row == 0 ? col : (Mancala.BOARD_SIZE - 1 - col);
+	}
+
+	/**
+	 * Adds marbles to a pit (a negative amount removes them)
+	 */
+	private void addToPit(int pitNum, int amount) {
+		if (pitNum < Mancala.STORE2)
+			low += (long) amount << (pitNum * FIELD_BITS);
+		else
+			high += (long) amount << ((pitNum - Mancala.STORE2) * FIELD_BITS);
+	}
+
+	/**
+	 * Empties a pit
+	 */
+	private void clearPit(int pitNum) {
+		if (pitNum < Mancala.STORE2)
+			low &= ~(FIELD_MASK << (pitNum * FIELD_BITS));
+		else
+			high &= ~(FIELD_MASK << ((pitNum - Mancala.STORE2) * FIELD_BITS));
+	}
+
+	/**
+	 * Check for invalid move
+	 */
+	public MoveType checkMove(int row, int col) {
+		return checkMove(findPitNum(row, col));
+	}
+
+	/**
+	 * Check for invalid move (pit number version)
+	 */
+	public MoveType checkMove(int pitNum) {
+		boolean inBounds1 = (pitNum > Mancala.STORE1 && pitNum < Mancala.STORE2);
+		boolean inBounds2 = (pitNum > Mancala.STORE2 && pitNum < Mancala.BOARD_SIZE);
+		boolean empty = getPit(pitNum) == 0;
+		int player = getCurrentPlayer();
+
+		if (((player == 1 && inBounds1) || (player == 2 && inBounds2)) && !empty)
+			return MoveType.SUCCESS;
+		else if ((inBounds1 || inBounds2) && empty)
+			return MoveType.EMPTY_PIT;
+		else
+			return MoveType.WRONG_PLAYER;
+	}
+
+	/**
+	 * Returns all legal moves of the player to move as a bitmask (bit pitNum set for every
+	 * house of the player with marbles in it), like Mancala.legalMoves(). The six house
+	 * fields of the player's word are tested in parallel: adding 011111 to the low five
+	 * bits of a field carries into its top bit exactly when they are not all zero (a field
+	 * never exceeds 48, so nothing carries into the next field), and OR-ing in the field
+	 * covers a top bit that was already set. Multiplying by GATHER then shifts the top bit
+	 * of field k (bit 6k+5) to bit GATHER_SHIFT + k; no two partial products meet, so
+	 * nothing carries.
+	 */
+	public int legalMoves() {
+		long word = (low < 0) ? high : low;
+		long nonEmpty = (((word & HOUSE_LOW_BITS) + HOUSE_LOW_BITS) | word) & HOUSE_TOP_BITS;
+		int houses = (int) ((nonEmpty * GATHER) >>> GATHER_SHIFT) & 0x7E;  // bits 1..6: houses 1..6 of the word
+		return houses << (int) ((low >>> PLAYER_BIT) * Mancala.STORE2);  // player 2's houses are pits 8..13
+	}
+
+	/**
+	 * Apply a general move
+	 */
+	public MoveResult applyMove(int row, int col) {
+		return applyMove(findPitNum(row, col));
+	}
+
+	/**
+	 * Apply a move from the given pit (pit number version); an empty pit sows nothing and
+	 * passes the turn (NORMAL), like Mancala.applyMove
+	 */
+	public MoveResult applyMove(int pitNum) {
+		int player = getCurrentPlayer();
+		int numOfMarbles = getPit(pitNum);
+		if (numOfMarbles == 0) {
+			low ^= PLAYER_MASK;  // switch players
+			hash ^= Zobrist.STANDARD.getPlayerKey();
+			return MoveResult.NORMAL;
+		}
+
+		hash ^= sownKeys(player, pitNum, numOfMarbles);  // old pit keys out
+		clearPit(pitNum);
+
+		// add the full laps and the remainder in one step per word
+		int laps = numOfMarbles / CYCLE;
+		int sowIndex = ((player - 1) * Mancala.BOARD_SIZE + pitNum) * CYCLE + numOfMarbles % CYCLE;
+		low += laps * LAP_LOW[player - 1] + SOW_LOW[sowIndex];
+		high += laps * LAP_HIGH[player - 1] + SOW_HIGH[sowIndex];
+		int newPit = Sowing.STANDARD.lastPit(player, pitNum, numOfMarbles);
+		hash ^= sownKeys(player, pitNum, numOfMarbles);  // new pit keys in
+
+		MoveResult result = checkResult(player, newPit);
+		if (result != MoveResult.FREE_TURN) {
+			low ^= PLAYER_MASK;  // switch players
+			hash ^= Zobrist.STANDARD.getPlayerKey();
+		}
+		return result;
+	}
+
+	/**
+	 * Check for extra turn and capture conditions
+	 */
+	private MoveResult checkResult(int player, int lastPit) {
+		if (lastPit == Mancala.STORE1 || lastPit == Mancala.STORE2)
+			return MoveResult.FREE_TURN;
+
+		boolean inCPBounds = (player == 1) ? (lastPit < Mancala.STORE2) : (lastPit > Mancala.STORE2);
+		int opposite = Mancala.BOARD_SIZE - lastPit;
+		int oppositeMarbles = getPit(opposite);
+		if (inCPBounds && getPit(lastPit) == 1 && oppositeMarbles >= 1) {
+			int store = (player == 1) ? Mancala.STORE1 : Mancala.STORE2;
+			int storeMarbles = getPit(store);
+			hash ^= Zobrist.STANDARD.key(lastPit, 1) ^ Zobrist.STANDARD.key(lastPit, 0)
+					^ Zobrist.STANDARD.key(opposite, oppositeMarbles) ^ Zobrist.STANDARD.key(opposite, 0)
+					^ Zobrist.STANDARD.key(store, storeMarbles) ^ Zobrist.STANDARD.key(store, storeMarbles + oppositeMarbles + 1);
+			clearPit(lastPit);
+			clearPit(opposite);
+			addToPit(store, oppositeMarbles + 1);
+			return MoveResult.CAPTURE;
+		}
+		return MoveResult.NORMAL;
+	}
+
+	/**
+	 * Returns the total number of marbles in the houses of one word. Multiplying
+	 * by HOUSE_SUM adds all six fields into the top one without a loop (no
+	 * partial sum exceeds the marbles in play, so no field overflows).
+	 */
+	private static int sumHouses(long word) {
+		long houses = (word & HOUSES_MASK) >>> FIELD_BITS;
+		return (int) (((houses * HOUSE_SUM) >>> (FIELD_BITS * (Mancala.N_PITS - 2))) & FIELD_MASK);
+	}
+
+	/**
+	 * Check the game state; when a side is empty the remaining marbles are moved
+	 * to their owner's store, just like Mancala.checkGameOver()
+	 */
+	public GameStatus checkGameOver() {
+		int remainingMarbles1 = sumHouses(low), remainingMarbles2 = sumHouses(high);
+		if (remainingMarbles1 != 0 && remainingMarbles2 != 0)
+			return GameStatus.IN_PROGRESS;
+
+		low = (low & ~HOUSES_MASK) + remainingMarbles1;
+		high = (high & ~HOUSES_MASK) + remainingMarbles2;
+		hash = computeHash();
+
+		int store1 = getPit(Mancala.STORE1), store2 = getPit(Mancala.STORE2);
+		if (store1 > store2)
+			return GameStatus.PLAYER1WON;
+		else if (store2 > store1)
+			return GameStatus.PLAYER2WON;
+		else
+			return GameStatus.TIED_GAME;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof PackedBoard))
+			return false;
+		PackedBoard other = (PackedBoard) obj;
+		return low == other.low && high == other.high;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(low * 31 + high);
+	}
+}
@@ -0,0 +1,204 @@
+package MancalaGame;
+
+/****************************************************************************
+ * RuleSet Class
+ *
+ * Purpose: This class describes one variant of the game: the number of
+ * houses per side, the starting marbles per house, when a capture happens
+ * and whether sowing skips the opponent's store. The board layout follows
+ * the standard one for any number of houses: player 1's store is pit 0,
+ * followed by player 1's houses, player 2's store and player 2's houses,
+ * and sowing goes in decreasing pit order. Everything a move needs (the
+ * sowing paths, the opposite of every pit, which side a pit is on and the
+ * hash keys) is computed once in the constructor, so a move on a larger
+ * board costs no more lookups than one on the standard board. A rule set
+ * never changes, so one instance can be shared by any number of games.
+ *
+ * Methods:
+ * RuleSet(int, int, CaptureRule, boolean) - constructor of this class
+ * getHousesPerSide() - returns int
+ * getInitMarbles() - returns int
+ * getCaptureRule() - returns CaptureRule
+ * isSkipOpponentStore() - returns boolean
+ * getBoardSize() - returns int
+ * getMaxMarbles() - returns int
+ * getStore(int) - returns int
+ * getFirstHouse(int) - returns int
+ * isStore(int) - returns boolean
+ * getSide(int) - returns int
+ * getOpposite(int) - returns int
+ * findPitNum(int, int) - returns int
+ * getSowing() - returns Sowing
+ * getZobrist() - returns Zobrist
+ * equals(Object) - returns boolean
+ * hashCode() - returns int
+ * toString() - returns String
+ *
+ ****************************************************************************/
+
+public final class RuleSet {
+	/**
+	 * when the last marble of a move captures the marbles of the opposite pit
+	 */
+	public static enum CaptureRule {
+		NONE,  // never
+		OWN_SIDE,  // when it lands in an empty house of the player's own side
+		ANY_SIDE  // when it lands in any empty house
+	}
+
+	public static final int MAX_HOUSES = 15;  // largest pit number must fit in an undo record (see Mancala.makeMove)
+	public static final int MAX_MARBLES = 511;  // largest marble count must fit in an undo record
+
+	/**
+	 * The rules of the standard game (six houses, four marbles each)
+	 */
+	public static final RuleSet STANDARD = new RuleSet(Mancala.N_PITS - 1, Mancala.INIT_MARBLES, CaptureRule.OWN_SIDE, true);
+
+	private final int housesPerSide;
+	private final int initMarbles;
+	private final CaptureRule captureRule;
+	private final boolean skipOpponentStore;
+
+	private final int boardSize;
+	private final int maxMarbles;  // marbles in play
+	private final int[] stores;  // stores[player-1] = pit number of the player's store
+	private final byte[] sides;  // sides[pitNum] = 1 or 2 for a house of that player, 0 for a store
+	private final int[] opposites;  // opposites[pitNum] = pit across the board (-1 for a store)
+	private final Sowing sowing;
+	private final Zobrist zobrist;
+
+	// constructor
+	public RuleSet(int housesPerSide, int initMarbles, CaptureRule captureRule, boolean skipOpponentStore) {
+		if (housesPerSide < 1 || housesPerSide > MAX_HOUSES)
+			throw new IllegalArgumentException("Houses per side must be between 1 and " + MAX_HOUSES);
+		if (initMarbles < 1 || Mancala.N_PLAYERS * housesPerSide * initMarbles > MAX_MARBLES)
+			throw new IllegalArgumentException("At most " + MAX_MARBLES + " marbles can be in play");
+		if (captureRule == null)
+			throw new IllegalArgumentException("A capture rule is needed");
+		this.housesPerSide = housesPerSide;
+		this.initMarbles = initMarbles;
+		this.captureRule = captureRule;
+		this.skipOpponentStore = skipOpponentStore;
+
+		boardSize = Mancala.N_PLAYERS * (housesPerSide + 1);
+		maxMarbles = Mancala.N_PLAYERS * housesPerSide * initMarbles;
+		stores = new int[] { 0, housesPerSide + 1 };
+
+		sides = new byte[boardSize];
+		opposites = new int[boardSize];
+		for (int pitNum = 0; pitNum < boardSize; pitNum++) {
+			if (pitNum == stores[0] || pitNum == stores[1]) {
+				opposites[pitNum] = -1;
+			} else {
+				sides[pitNum] = (byte) (pitNum < stores[1] ? 1 : 2);
+				opposites[pitNum] = boardSize - pitNum;
+			}
+		}
+
+		sowing = new Sowing(boardSize, stores[0], stores[1], skipOpponentStore);
+		zobrist = new Zobrist(boardSize, maxMarbles);
+	}
+
+	public int getHousesPerSide() {
+		return housesPerSide;
+	}
+
+	public int getInitMarbles() {
+		return initMarbles;
+	}
+
+	public CaptureRule getCaptureRule() {
+		return captureRule;
+	}
+
+	public boolean isSkipOpponentStore() {
+		return skipOpponentStore;
+	}
+
+	/**
+	 * Returns the number of pits (houses and stores)
+	 */
+	public int getBoardSize() {
+		return boardSize;
+	}
+
+	/**
+	 * Returns the number of marbles in play
+	 */
+	public int getMaxMarbles() {
+		return maxMarbles;
+	}
+
+	/**
+	 * Returns the pit number of a player's store
+	 */
+	public int getStore(int player) {
+		return stores[player - 1];
+	}
+
+	/**
+	 * Returns the pit number of a player's first house
+	 */
+	public int getFirstHouse(int player) {
+		return stores[player - 1] + 1;
+	}
+
+	/**
+	 * Is this pit one of the players' stores?
+	 */
+	public boolean isStore(int pitNum) {
+		return sides[pitNum] == 0;
+	}
+
+	/**
+	 * Returns the player whose house this pit is (0 for a store)
+	 */
+	public int getSide(int pitNum) {
+		return sides[pitNum];
+	}
+
+	/**
+	 * Returns the pit directly across the board (-1 for a store)
+	 */
+	public int getOpposite(int pitNum) {
+		return opposites[pitNum];
+	}
+
+	/**
+	 * Find the pit number from a row (0 for player 1, 1 for player 2) and a column
+	 */
+	public int findPitNum(int row, int col) {
+		return row == 0 ? col : (boardSize - 1 - col);
+	}
+
+	public Sowing getSowing() {
+		return sowing;
+	}
+
+	public Zobrist getZobrist() {
+		return zobrist;
+	}
+
+	/**
+	 * Rule sets are equal when they describe the same game (the tables follow from the rules)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof RuleSet))
+			return false;
+		RuleSet other = (RuleSet) obj;
+		return housesPerSide == other.housesPerSide && initMarbles == other.initMarbles
+				&& captureRule == other.captureRule && skipOpponentStore == other.skipOpponentStore;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((housesPerSide * 31 + initMarbles) * 31 + captureRule.ordinal()) * 2 + (skipOpponentStore ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return housesPerSide + " houses, " + initMarbles + " marbles, capture " + captureRule
+				+ (skipOpponentStore ? ", opponent's store skipped" : ", opponent's store sown");
+	}
+}
@@ -0,0 +1,128 @@
+package MancalaGame;
+
+/****************************************************************************
+ * SoundManager Class
+ *
+ * Purpose: This class plays a short sound effect (like a button click)
+ * without any work per play beyond restarting a line. The sample is read and
+ * decoded once, when the manager is created, from the classpath (or, if it
+ * is not there, from a file of that name in the working directory), and a
+ * small pool of Clips is opened on the decoded data. play() starts the next
+ * idle clip and returns at once, so rapid clicks overlap instead of queueing;
+ * if every clip is still playing the oldest one is rewound. The clips stay
+ * open for the life of the manager, so no audio lines are leaked.
+ *
+ * On a headless machine, without a mixer or when the sample cannot be read,
+ * the manager disables itself (one message on standard error) and play()
+ * does nothing.
+ *
+ * Methods:
+ * SoundManager(String, int) - constructor of this class
+ * isEnabled() - returns boolean
+ * play() - returns void
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+public class SoundManager {
+	public static final int DEFAULT_CLIPS = 4;
+
+	private Clip[] clips;  // null when disabled or closed
+	private int next;  // clip to try first on the next play
+
+	// constructor
+	public SoundManager(String soundName, int numOfClips) {
+		if (numOfClips < 1)
+			throw new IllegalArgumentException("At least one clip is needed");
+		clips = load(soundName, numOfClips);
+	}
+
+	/**
+	 * Decodes the sample and opens the clips; returns null (and prints why) if sound is not available
+	 */
+	private static Clip[] load(String soundName, int numOfClips) {
+		if (GraphicsEnvironment.isHeadless()) {
+			System.err.println("Sound disabled: headless environment");
+			return null;
+		}
+		Clip[] opened = new Clip[numOfClips];
+		try (AudioInputStream audio = AudioSystem.getAudioInputStream(open(soundName))) {
+			AudioFormat format = audio.getFormat();
+			byte[] data = audio.readAllBytes();
+			for (int i = 0; i < numOfClips; i++) {
+				opened[i] = AudioSystem.getClip();
+				opened[i].open(format, data, 0, data.length);
+			}
+			return opened;
+		} catch (IOException | UnsupportedAudioFileException | LineUnavailableException
+				| IllegalArgumentException | SecurityException e) {
+			// IllegalArgumentException: no mixer supports clips in this format
+			System.err.println("Sound disabled: " + e.getMessage());
+			for (Clip clip : opened)
+				if (clip != null)
+					clip.close();
+			return null;
+		}
+	}
+
+	/**
+	 * Opens the sample from the classpath, or from the working directory if it is not on the classpath
+	 */
+	private static InputStream open(String soundName) throws IOException {
+		InputStream in = SoundManager.class.getResourceAsStream("/" + soundName);
+		if (in == null)
+			in = new FileInputStream(soundName);
+		return new BufferedInputStream(in);  // the audio file readers need mark/reset
+	}
+
+	/**
+	 * Is sound available?
+	 */
+	public synchronized boolean isEnabled() {
+		return clips != null;
+	}
+
+	/**
+	 * Starts the sound and returns without waiting for it
+	 */
+	public synchronized void play() {
+		if (clips == null)
+			return;
+		Clip clip = clips[next];
+		for (int i = 0; i < clips.length; i++) {
+			Clip candidate = clips[(next + i) % clips.length];
+			if (!candidate.isRunning()) {
+				clip = candidate;
+				next = (next + i) % clips.length;
+				break;
+			}
+		}
+		next = (next + 1) % clips.length;  // all busy: the clip at next is the oldest one
+		clip.stop();
+		clip.setFramePosition(0);
+		clip.start();
+	}
+
+	/**
+	 * Releases the audio lines
+	 */
+	public synchronized void close() {
+		if (clips != null)
+			for (Clip clip : clips)
+				clip.close();
+		clips = null;
+	}
+}
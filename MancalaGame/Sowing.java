@@ -0,0 +1,144 @@
+package MancalaGame;
+
+/****************************************************************************
+ * Sowing Class
+ *
+ * Purpose: This class distributes (sows) the marbles of a pit in constant
+ * time. Marbles are dropped one per pit in decreasing pit order, wrapping
+ * around the board and (normally) skipping the opponent's store, so the
+ * pits visited from a given pit form a fixed cycle of (board size - 1) pits,
+ * or board size pits when no store is skipped, that ends with the emptied
+ * pit itself. The cycle of every pit and player is computed once
+ * at construction; sowing n marbles then adds n / cycle full laps to every
+ * pit of the cycle plus one more marble to the first n % cycle pits, and the
+ * last pit (for capture and free turn checks) is a single table lookup.
+ * How many of the sown marbles land in each player's houses is looked up the
+ * same way, so per-side house totals can be kept up to date for free.
+ * An empty pit sows nothing: its last pit is the pit itself.
+ *
+ * Methods:
+ * Sowing(int, int, int) - constructor of this class
+ * Sowing(int, int, int, boolean) - constructor with or without skipping the opponent's store
+ * getCycleLength() - returns int
+ * getPit(int, int, int) - returns int
+ * lastPit(int, int, int) - returns int
+ * housesSown(int, int, int, int) - returns int
+ * sow(int[], int, int) - returns int
+ * unsow(int[], int, int, int) - returns void
+ *
+ ****************************************************************************/
+
+public final class Sowing {
+	/**
+	 * Sowing tables of the standard board
+	 */
+	public static final Sowing STANDARD = new Sowing(Mancala.BOARD_SIZE, Mancala.STORE1, Mancala.STORE2);
+
+	private final int boardSize;
+	private final int cycleLength;  // number of pits one lap visits
+	private final int housesPerLap;  // houses of one player visited by a lap
+	private final int[] paths;  // paths[((player-1) * boardSize + pitNum) * cycleLength + step] = pit receiving marble step+1
+	private final int[] sideCounts;  // sideCounts[(path index) * 2 + side-1] = houses of side among the first step pits of the path
+
+	// constructor
+	public Sowing(int boardSize, int store1, int store2) {
+		this(boardSize, store1, store2, true);
+	}
+
+	// constructor with or without skipping the opponent's store
+	public Sowing(int boardSize, int store1, int store2, boolean skipOpponentStore) {
+		this.boardSize = boardSize;
+		cycleLength = skipOpponentStore ? boardSize - 1 : boardSize;
+		housesPerLap = store2 - store1 - 1;
+		paths = new int[Mancala.N_PLAYERS * boardSize * cycleLength];
+		sideCounts = new int[paths.length * Mancala.N_PLAYERS];
+
+		for (int player = 1; player <= Mancala.N_PLAYERS; player++) {
+			int skippedStore = (player == 1) ? store2 : store1;  // the opponent's store
+			for (int pitNum = 0; pitNum < boardSize; pitNum++) {
+				int base = ((player - 1) * boardSize + pitNum) * cycleLength;
+				int newPit = pitNum, side1 = 0, side2 = 0;
+				for (int step = 0; step < cycleLength; step++) {
+					sideCounts[(base + step) * 2] = side1;
+					sideCounts[(base + step) * 2 + 1] = side2;
+					newPit = (newPit == 0) ? boardSize - 1 : newPit - 1;
+					if (skipOpponentStore && newPit == skippedStore)
+						newPit = (newPit == 0) ? boardSize - 1 : newPit - 1;
+					paths[base + step] = newPit;
+					if (newPit > store1 && newPit < store2)
+						side1++;
+					else if (newPit > store2)
+						side2++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of pits in one lap
+	 */
+	public int getCycleLength() {
+		return cycleLength;
+	}
+
+	/**
+	 * Returns the pit that receives marble number step+1 when the player sows from pitNum
+	 */
+	public int getPit(int player, int pitNum, int step) {
+		return paths[((player - 1) * boardSize + pitNum) * cycleLength + step];
+	}
+
+	/**
+	 * Returns the pit that receives the last of numOfMarbles (pitNum itself if there are none)
+	 */
+	public int lastPit(int player, int pitNum, int numOfMarbles) {
+		if (numOfMarbles == 0)
+			return pitNum;
+		return getPit(player, pitNum, (numOfMarbles - 1) % cycleLength);
+	}
+
+	/**
+	 * Returns how many of numOfMarbles sown from pitNum land in the houses of side (1 or 2)
+	 */
+	public int housesSown(int player, int pitNum, int numOfMarbles, int side) {
+		int base = ((player - 1) * boardSize + pitNum) * cycleLength;
+		return (numOfMarbles / cycleLength) * housesPerLap + sideCounts[(base + numOfMarbles % cycleLength) * 2 + side - 1];
+	}
+
+	/**
+	 * Sow all marbles of pitNum on the board and return the pit that received the last one
+	 */
+	public int sow(int[] board, int player, int pitNum) {
+		int numOfMarbles = board[pitNum];
+		if (numOfMarbles == 0)
+			return pitNum;
+		int base = ((player - 1) * boardSize + pitNum) * cycleLength;
+		int laps = numOfMarbles / cycleLength;
+		int remainder = numOfMarbles % cycleLength;
+
+		board[pitNum] = 0;
+		if (laps > 0)
+			for (int step = 0; step < cycleLength; step++)
+				board[paths[base + step]] += laps;
+		for (int step = 0; step < remainder; step++)
+			board[paths[base + step]]++;
+
+		return paths[base + (numOfMarbles - 1) % cycleLength];
+	}
+
+	/**
+	 * Reverse of sow: takes numOfMarbles back from the pits and puts them into pitNum
+	 */
+	public void unsow(int[] board, int player, int pitNum, int numOfMarbles) {
+		int base = ((player - 1) * boardSize + pitNum) * cycleLength;
+		int laps = numOfMarbles / cycleLength;
+		int remainder = numOfMarbles % cycleLength;
+
+		if (laps > 0)
+			for (int step = 0; step < cycleLength; step++)
+				board[paths[base + step]] -= laps;
+		for (int step = 0; step < remainder; step++)
+			board[paths[base + step]]--;
+		board[pitNum] = numOfMarbles;
+	}
+}
@@ -0,0 +1,97 @@
+package MancalaGame;
+
+/****************************************************************************
+ * Zobrist Class
+ *
+ * Purpose: This class holds the random keys used to hash Mancala positions.
+ * The hash of a position is the XOR of one key per pit (chosen by the number
+ * of marbles in that pit) and, when player 2 is to move, the player key. A
+ * move only changes the pits it sows into, so the hash can be updated by
+ * XOR-ing out the old keys of those pits and XOR-ing in the new ones. The
+ * keys come from a fixed seed, so hashes are stable between runs (files
+ * keyed by position hash depend on this).
+ *
+ * Methods:
+ * Zobrist(int, int) - constructor of this class
+ * key(int, int) - returns long
+ * getPlayerKey() - returns long
+ * hash(int[], int) - returns long
+ * sownKeys(int[], Sowing, int, int, int) - returns long
+ *
+ ****************************************************************************/
+
+public final class Zobrist {
+	/**
+	 * Keys of the standard board
+	 */
+	public static final Zobrist STANDARD = new Zobrist(Mancala.BOARD_SIZE,
+			Mancala.N_PLAYERS * (Mancala.N_PITS - 1) * Mancala.INIT_MARBLES);
+
+	private static final long SEED = 0x4D616E63616C61L;  // "Mancala"
+
+	private final int keysPerPit;  // one key per possible number of marbles
+	private final long[] keys;  // keys[pitNum * keysPerPit + numOfMarbles]
+	private final long playerKey;
+
+	// constructor
+	public Zobrist(int boardSize, int maxMarbles) {
+		keysPerPit = maxMarbles + 1;
+		keys = new long[boardSize * keysPerPit];
+
+		long state = SEED;
+		for (int i = 0; i < keys.length; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			keys[i] = mix(state);
+		}
+		state += 0x9E3779B97F4A7C15L;
+		playerKey = mix(state);
+	}
+
+	/**
+	 * SplitMix64 finalizer
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the key of a pit holding the given number of marbles
+	 */
+	public long key(int pitNum, int numOfMarbles) {
+		return keys[pitNum * keysPerPit + numOfMarbles];
+	}
+
+	/**
+	 * Returns the key that is XOR-ed in when player 2 is to move
+	 */
+	public long getPlayerKey() {
+		return playerKey;
+	}
+
+	/**
+	 * Computes the hash of a whole board from scratch
+	 */
+	public long hash(int[] board, int player) {
+		long hash = (player == 2) ? playerKey : 0;
+		for (int pitNum = 0; pitNum < board.length; pitNum++)
+			hash ^= key(pitNum, board[pitNum]);
+		return hash;
+	}
+
+	/**
+	 * Returns the XOR of the keys of every pit a move from pitNum touches (the
+	 * emptied pit and the pits that receive marbles). Calling this before and
+	 * after sowing and XOR-ing both results into the hash updates it.
+	 */
+	public long sownKeys(int[] board, Sowing sowing, int player, int pitNum, int numOfMarbles) {
+		int touched = Math.min(numOfMarbles, sowing.getCycleLength());
+		long keys = (touched < sowing.getCycleLength()) ? key(pitNum, board[pitNum]) : 0;  // a full lap ends in pitNum itself
+		for (int step = 0; step < touched; step++) {
+			int newPit = sowing.getPit(player, pitNum, step);
+			keys ^= key(newPit, board[newPit]);
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,243 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * BackgroundAnalyzer Class
+ *
+ * Purpose: This class analyses a position continuously in the background
+ * (hint mode): every legal move gets its own score, deeper and deeper until
+ * the analysis is stopped or restarted on another position. The moves are
+ * shared out between worker threads, each with its own SearchEngine and all
+ * sharing one TranspositionTable; a move's score is a search of the
+ * position after it, one ply shallower than the iteration. After every
+ * completed iteration the result is published as an immutable Analysis
+ * that any thread can read with getLatest() without waiting.
+ *
+ * start() and stop() never wait either: they raise the stop signal of the
+ * running analysis (the engines see it within a few thousand nodes) and
+ * queue the next one, and a single coordinator thread runs the analyses one
+ * after the other, so the engines are never used by two analyses at once.
+ * The workers run at minimum priority, so a user interface stays
+ * responsive while they keep every core busy.
+ *
+ * Methods:
+ * BackgroundAnalyzer(int, int) - constructor of this class
+ * setEvaluator(Evaluator) - returns void
+ * start(PackedBoard) - returns void
+ * stop() - returns void
+ * getLatest() - returns Analysis
+ * shutdown() - returns void
+ *
+ ****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.PackedBoard;
+
+public class BackgroundAnalyzer {
+	public static final int NO_SCORE = Integer.MIN_VALUE;  // score of an illegal move
+
+	/**
+	 * The result of the last completed iteration on a position
+	 */
+	public static final class Analysis {
+		private final long hash;
+		private final int[] scores;
+		private final int bestMove;
+		private final int depth;
+		private final long nodes;
+
+		Analysis(long hash, int[] scores, int bestMove, int depth, long nodes) {
+			this.hash = hash;
+			this.scores = scores.clone();
+			this.bestMove = bestMove;
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * Returns the Zobrist hash of the analysed position
+		 */
+		public long getHash() {
+			return hash;
+		}
+
+		/**
+		 * Returns the score of a move in marbles for the player to move (NO_SCORE if it is not legal)
+		 */
+		public int getScore(int pitNum) {
+			return scores[pitNum];
+		}
+
+		public int getBestMove() {
+			return bestMove;
+		}
+
+		/**
+		 * Returns the depth of the iteration in plies, the move included
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns the nodes searched on the position so far
+		 */
+		public long getNodes() {
+			return nodes;
+		}
+	}
+
+	private final SearchEngine[] engines;  // one per worker
+	private final TranspositionTable table;
+	private final ExecutorService coordinator;  // runs one analysis at a time
+	private final ExecutorService workers;
+	private final AtomicReference<Analysis> latest = new AtomicReference<>();
+	private AtomicBoolean running = new AtomicBoolean();  // stop signal of the last analysis started (guarded by this)
+
+	// constructor
+	public BackgroundAnalyzer(int threads, int tableMegabytes) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed");
+		table = new TranspositionTable(tableMegabytes);
+		engines = new SearchEngine[threads];
+		for (int i = 0; i < threads; i++)
+			engines[i] = new SearchEngine(table);
+		coordinator = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "analysis"));
+		workers = Executors.newFixedThreadPool(threads, runnable -> newThread(runnable, "analysis-worker"));
+	}
+
+	private static Thread newThread(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	}
+
+	/**
+	 * Scores the leaves with the given evaluator (takes effect with the next start)
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		coordinator.execute(() -> {
+			for (SearchEngine engine : engines)
+				engine.setEvaluator(evaluator);
+		});
+	}
+
+	/**
+	 * Stops the running analysis and starts one on a copy of the position (returns at once)
+	 */
+	public synchronized void start(PackedBoard position) {
+		stop();
+		PackedBoard root = new PackedBoard(position);
+		AtomicBoolean stopSignal = new AtomicBoolean();
+		running = stopSignal;
+		coordinator.execute(() -> analyze(root, stopSignal));
+	}
+
+	/**
+	 * Stops the running analysis (returns at once; the last result stays readable)
+	 */
+	public synchronized void stop() {
+		running.set(true);
+	}
+
+	/**
+	 * Returns the latest completed iteration of the latest position, or null if there is none yet
+	 */
+	public Analysis getLatest() {
+		return latest.get();
+	}
+
+	/**
+	 * Stops the threads
+	 */
+	public void shutdown() {
+		stop();
+		coordinator.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Iterative deepening over the moves of root (coordinator thread)
+	 */
+	private void analyze(PackedBoard root, AtomicBoolean stopSignal) {
+		if (stopSignal.get())
+			return;  // already replaced by a newer position
+		latest.set(null);
+		if (root.checkGameOver() != GameStatus.IN_PROGRESS)
+			return;
+
+		table.newSearch();
+		for (SearchEngine engine : engines)
+			engine.setStopSignal(stopSignal);
+		int[] moves = new int[Mancala.N_PITS - 1];
+		int count = 0;
+		for (int mask = root.legalMoves(); mask != 0; mask &= mask - 1)
+			moves[count++] = Integer.numberOfTrailingZeros(mask);
+		int numOfMoves = count;
+
+		long[] nodes = new long[engines.length];
+		for (int childDepth = 1; childDepth <= SearchEngine.MAX_DEPTH; childDepth++) {
+			int[] iteration = new int[Mancala.BOARD_SIZE];
+			Arrays.fill(iteration, NO_SCORE);
+			AtomicInteger next = new AtomicInteger();
+			int depth = childDepth;
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < engines.length && w < numOfMoves; w++) {
+				int worker = w;
+				futures.add(workers.submit(() -> {
+					PackedBoard child = new PackedBoard();
+					for (int i = next.getAndIncrement(); i < numOfMoves && !stopSignal.get(); i = next.getAndIncrement()) {
+						child.copyFrom(root);
+						iteration[moves[i]] = scoreMove(engines[worker], child, moves[i], depth, nodes, worker);
+					}
+				}));
+			}
+			try {
+				for (Future<?> future : futures)
+					future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Analysis failed", e.getCause());
+			}
+			if (stopSignal.get())
+				return;  // the iteration is incomplete
+
+			int bestMove = moves[0];
+			for (int i = 1; i < numOfMoves; i++)
+				if (iteration[moves[i]] > iteration[bestMove])
+					bestMove = moves[i];
+			latest.set(new Analysis(root.getHash(), iteration, bestMove, childDepth + 1, Arrays.stream(nodes).sum()));
+		}
+	}
+
+	/**
+	 * Score of a move for the player to move: the position after it searched to the given depth
+	 */
+	private static int scoreMove(SearchEngine engine, PackedBoard child, int pitNum, int depth, long[] nodes, int worker) {
+		MoveResult result = child.applyMove(pitNum);
+		int sign = (result == MoveResult.FREE_TURN) ? 1 : -1;  // after a free turn the same player moves again
+		if (child.checkGameOver() != GameStatus.IN_PROGRESS) {  // exact: the remaining marbles are in the stores
+			int difference = child.getPit(Mancala.STORE1) - child.getPit(Mancala.STORE2);
+			return sign * (child.getCurrentPlayer() == 1 ? difference : -difference);
+		}
+		engine.setMaxDepth(depth);
+		SearchResult searched = engine.searchHelper(child, depth);
+		nodes[worker] += searched.getNodes();
+		return sign * searched.getScore();
+	}
+}
@@ -0,0 +1,95 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * EndgameDatabase Class
+ *
+ * Purpose: This class reads an endgame database written by EndgameGenerator.
+ * The file is mapped into memory (nothing is parsed or copied at startup) and
+ * holds one signed byte per EndgameIndex position: the best store difference
+ * the player to move can still gain from the marbles left in the houses.
+ * Adding the current store difference gives the exact final result.
+ *
+ * File layout: MAGIC (int), VERSION (int), maximum seeds (int), reserved
+ * (int), then one byte per position in index order.
+ *
+ * Methods:
+ * open(Path) - returns EndgameDatabase
+ * getMaxSeeds() - returns int
+ * contains(PackedBoard) - returns boolean
+ * probe(PackedBoard) - returns int
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import MancalaGame.PackedBoard;
+
+public class EndgameDatabase {
+	static final int MAGIC = 0x4D454442;  // "MEDB"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int maxSeeds;
+
+	private EndgameDatabase(FileChannel channel, MappedByteBuffer buffer, int maxSeeds) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.maxSeeds = maxSeeds;
+	}
+
+	/**
+	 * Maps a database file
+	 */
+	public static EndgameDatabase open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+				throw new IOException(path + " is not an endgame database");
+
+			int maxSeeds = buffer.getInt(8);
+			if (maxSeeds < 0 || maxSeeds > EndgameIndex.MAX_SEEDS
+					|| buffer.limit() != HEADER_SIZE + EndgameIndex.size(maxSeeds))
+				throw new IOException(path + " has the wrong size");
+			return new EndgameDatabase(channel, buffer, maxSeeds);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Largest number of marbles in the houses covered by the database
+	 */
+	public int getMaxSeeds() {
+		return maxSeeds;
+	}
+
+	/**
+	 * Whether the position is covered by the database
+	 */
+	public boolean contains(PackedBoard board) {
+		return board.getHouseTotal(1) + board.getHouseTotal(2) <= maxSeeds;
+	}
+
+	/**
+	 * Best store difference the player to move can still gain (the position must be covered)
+	 */
+	public int probe(PackedBoard board) {
+		return buffer.get(HEADER_SIZE + (int) EndgameIndex.rank(board));
+	}
+
+	/**
+	 * Closes the file (the mapping stays valid until it is garbage collected)
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+}
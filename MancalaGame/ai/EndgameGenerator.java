@@ -0,0 +1,162 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * EndgameGenerator Class
+ *
+ * Purpose: This class solves every position with at most N marbles in the
+ * houses and writes the results as an EndgameDatabase file. Marbles never
+ * return to the houses once they are in a store, and a move that puts none
+ * in a store moves marbles strictly closer to their store, so every move
+ * leads to a position with fewer marbles in the houses or to one that is
+ * nearer the stores. Positions are therefore solved from 0 marbles upwards,
+ * each one from the already known values of its successors, and the
+ * recursion within one marble count always ends.
+ *
+ * Value of a position (player to move): the best over all moves of the
+ * marbles the move gains for the mover (store difference), plus the value
+ * of the next position if it is a free turn, minus it otherwise; at the end
+ * of the game the marbles left in the houses go to their owners.
+ *
+ * Methods:
+ * EndgameGenerator(int) - constructor of this class
+ * generate() - returns void
+ * write(Path) - returns void
+ * main(String[]) - builds a database file
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.PackedBoard;
+
+public class EndgameGenerator {
+	private static final byte UNKNOWN = Byte.MIN_VALUE;
+
+	private final int maxSeeds;
+	private final byte[] values;
+	private PackedBoard[] stack = new PackedBoard[64];  // one scratch board per recursion level
+
+	// constructor
+	public EndgameGenerator(int maxSeeds) {
+		if (maxSeeds < 0 || maxSeeds > EndgameIndex.MAX_SEEDS)
+			throw new IllegalArgumentException("Seeds must be between 0 and " + EndgameIndex.MAX_SEEDS);
+		this.maxSeeds = maxSeeds;
+		values = new byte[(int) EndgameIndex.size(maxSeeds)];
+		Arrays.fill(values, UNKNOWN);
+		for (int i = 0; i < stack.length; i++)
+			stack[i] = new PackedBoard();
+	}
+
+	/**
+	 * Solves all positions, fewest marbles first
+	 */
+	public void generate() {
+		int[] houses = new int[EndgameIndex.N_HOUSES];
+		int[] board = new int[Mancala.BOARD_SIZE];
+		PackedBoard position = new PackedBoard();
+
+		for (long index = 0; index < values.length; index++) {
+			if (values[(int) index] != UNKNOWN)
+				continue;
+			EndgameIndex.unrank(index, houses);
+			for (int house = 0; house < houses.length; house++)
+				board[EndgameIndex.houseToPit(1, house)] = houses[house];
+			position.load(board, 1);
+			solve(position, 0);
+		}
+	}
+
+	/**
+	 * Returns the value of a position for the player to move, solving it if needed
+	 */
+	private int solve(PackedBoard position, int level) {
+		int index = (int) EndgameIndex.rank(position);
+		if (values[index] != UNKNOWN)
+			return values[index];
+
+		int player = position.getCurrentPlayer();
+		int own = position.getHouseTotal(player), other = position.getHouseTotal(3 - player);
+		int best;
+		if (own == 0 || other == 0) {
+			best = own - other;  // game over: the houses are emptied into their owners' stores
+		} else {
+			if (level == stack.length)
+				growStack();
+			PackedBoard child = stack[level];
+			int before = storeDifference(position, player);
+			best = Integer.MIN_VALUE;
+
+			for (int mask = position.legalMoves(); mask != 0; mask &= mask - 1) {
+				int pitNum = Integer.numberOfTrailingZeros(mask);
+				child.copyFrom(position);
+				MoveResult result = child.applyMove(pitNum);
+
+				int value;
+				if (child.checkGameOver() != GameStatus.IN_PROGRESS)
+					value = storeDifference(child, player) - before;
+				else if (result == MoveResult.FREE_TURN)
+					value = storeDifference(child, player) - before + solve(child, level + 1);
+				else
+					value = storeDifference(child, player) - before - solve(child, level + 1);
+				best = Math.max(best, value);
+			}
+		}
+
+		values[index] = (byte) best;
+		return best;
+	}
+
+	private static int storeDifference(PackedBoard board, int player) {
+		int difference = board.getPit(Mancala.STORE1) - board.getPit(Mancala.STORE2);
+		return (player == 1) ? difference : -difference;
+	}
+
+	private void growStack() {
+		PackedBoard[] larger = Arrays.copyOf(stack, stack.length * 2);
+		for (int i = stack.length; i < larger.length; i++)
+			larger[i] = new PackedBoard();
+		stack = larger;
+	}
+
+	/**
+	 * Writes the solved positions as a database file
+	 */
+	public void write(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(EndgameDatabase.HEADER_SIZE);
+			header.putInt(EndgameDatabase.MAGIC).putInt(EndgameDatabase.VERSION).putInt(maxSeeds).putInt(0);
+			header.flip();
+			while (header.hasRemaining())
+				channel.write(header);
+
+			ByteBuffer body = ByteBuffer.wrap(values);
+			while (body.hasRemaining())
+				channel.write(body);
+		}
+	}
+
+	/**
+	 * Builds a database: EndgameGenerator [max seeds] [file]
+	 */
+	public static void main(String[] args) throws IOException {
+		int maxSeeds = (args.length > 0) ? Integer.parseInt(args[0]) : 12;
+		Path path = Paths.get(args.length > 1 ? args[1] : "endgame-" + maxSeeds + ".db");
+
+		long start = System.nanoTime();
+		EndgameGenerator generator = new EndgameGenerator(maxSeeds);
+		generator.generate();
+		generator.write(path);
+		System.out.printf("%d positions (up to %d seeds) written to %s in %.1f s%n",
+				EndgameIndex.size(maxSeeds), maxSeeds, path, (System.nanoTime() - start) / 1e9);
+	}
+}
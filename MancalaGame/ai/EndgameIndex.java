@@ -0,0 +1,98 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * EndgameIndex Class
+ *
+ * Purpose: This class numbers endgame positions without gaps (combinatorial
+ * ranking). A position is read from the point of view of the player to move:
+ * first the mover's six houses, then the opponent's six houses, in sowing
+ * order. The stores are left out, since the outcome of the rest of the game
+ * only depends on the houses. Positions are ordered by the total number of
+ * marbles in the houses and then lexicographically, so all positions with
+ * at most N marbles take the indices 0 .. size(N) - 1.
+ *
+ * Methods:
+ * size(int) - returns long
+ * rank(PackedBoard) - returns long
+ * unrank(long, int[]) - returns int
+ * houseToPit(int, int) - returns int
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+import MancalaGame.PackedBoard;
+
+public final class EndgameIndex {
+	public static final int N_HOUSES = Mancala.N_PLAYERS * (Mancala.N_PITS - 1);  // houses on the board
+	public static final int MAX_SEEDS = 24;  // largest database that fits in one mapped buffer
+
+	// WAYS[m][s] = number of ways to put s marbles into m houses = C(s + m - 1, m - 1)
+	private static final long[][] WAYS = new long[N_HOUSES + 2][MAX_SEEDS + 1];
+
+	static {
+		WAYS[0][0] = 1;
+		for (int m = 1; m < WAYS.length; m++)
+			for (int s = 0; s <= MAX_SEEDS; s++)
+				WAYS[m][s] = WAYS[m - 1][s] + (s > 0 ? WAYS[m][s - 1] : 0);
+	}
+
+	private EndgameIndex() {
+	}
+
+	/**
+	 * Number of positions with at most maxSeeds marbles in the houses
+	 */
+	public static long size(int maxSeeds) {
+		return WAYS[N_HOUSES + 1][maxSeeds];
+	}
+
+	/**
+	 * Pit number of the i-th house (0..11) seen from the player to move
+	 */
+	public static int houseToPit(int player, int house) {
+		int pitNum = (house < Mancala.N_PITS - 1) ? Mancala.STORE1 + 1 + house : Mancala.STORE2 + 1 + house - (Mancala.N_PITS - 1);
+		return (player == 1) ? pitNum : (pitNum + Mancala.N_PITS) % Mancala.BOARD_SIZE;
+	}
+
+	/**
+	 * Index of a position (the house total must be at most MAX_SEEDS)
+	 */
+	public static long rank(PackedBoard board) {
+		int player = board.getCurrentPlayer();
+		int remaining = board.getHouseTotal(1) + board.getHouseTotal(2);
+		long index = (remaining == 0) ? 0 : size(remaining - 1);  // positions with fewer marbles come first
+
+		for (int house = 0; house < N_HOUSES - 1; house++) {
+			int seeds = board.getPit(houseToPit(player, house));
+			int rest = N_HOUSES - 1 - house;  // houses after this one
+			// positions that agree so far and hold fewer marbles in this house
+			index += WAYS[rest + 1][remaining] - WAYS[rest + 1][remaining - seeds];
+			remaining -= seeds;
+		}
+		return index;
+	}
+
+	/**
+	 * Fills houses (seen from the player to move) for an index and returns their total
+	 */
+	public static int unrank(long index, int[] houses) {
+		int total = 0;
+		while (size(total) <= index)
+			total++;
+		index -= (total == 0) ? 0 : size(total - 1);
+
+		int remaining = total;
+		for (int house = 0; house < N_HOUSES - 1; house++) {
+			int rest = N_HOUSES - 1 - house;
+			int seeds = 0;
+			while (index >= WAYS[rest][remaining - seeds]) {  // skip all positions with this many marbles here
+				index -= WAYS[rest][remaining - seeds];
+				seeds++;
+			}
+			houses[house] = seeds;
+			remaining -= seeds;
+		}
+		houses[N_HOUSES - 1] = remaining;
+		return total;
+	}
+}
@@ -0,0 +1,274 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * EvalTuner Class
+ *
+ * Purpose: This class fits the weights of a LinearEvaluator to recorded
+ * games (Texel tuning). Every position of a finished standard game (after
+ * the first few plies) becomes a sample: its features (see Features) and
+ * the final result for the player to move (win 1, tie 1/2, loss 0). The
+ * samples are kept in two flat byte arrays, since every feature fits in a
+ * byte. The evaluation e of a sample predicts the result as
+ * sigmoid(k * e); k is fitted first with the starting weights, so the
+ * weights stay in marbles, and then the mean squared error of the
+ * predictions is minimised by gradient descent (Adam steps). The loss and
+ * its gradient are summed in parallel: the samples are split into chunks
+ * and every thread of the pool sums its chunks into its own totals.
+ *
+ * A data set comes from the self-play simulator, for example
+ * SelfPlaySimulator 200000 8 1 mcts:2000 mcts:2000 6 4 games.rec
+ *
+ * Methods:
+ * EvalTuner(int) - constructor of this class
+ * addGames(Path, int) - returns long
+ * size() - returns long
+ * loss(double[], double) - returns double
+ * fitScale(double[]) - returns double
+ * tune(double[], double, int, double) - returns double[]
+ * shutdown() - returns void
+ * main(String[]) - EvalTuner [records file] [weights file] [iterations] [threads]
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.PackedBoard;
+import MancalaGame.RuleSet;
+import MancalaGame.record.GameRecord;
+import MancalaGame.record.GameRecordReader;
+
+public class EvalTuner {
+	public static final int DEFAULT_SKIP_PLIES = 4;  // opening plies left out (they are nearly the same in every game)
+
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final double MIN_SCALE = 0.01, MAX_SCALE = 4;  // range searched for k
+	private static final double BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;  // Adam
+
+	private final int threads;
+	private final ExecutorService executor;
+	private byte[] features = new byte[(1 << 16) * Features.COUNT];  // Features.COUNT per sample
+	private byte[] results = new byte[1 << 16];  // 0 loss, 1 tie, 2 win for the player to move
+	private int size;
+
+	// constructor
+	public EvalTuner(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed");
+		this.threads = threads;
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "eval-tuner");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Adds the positions of every finished standard game of a record file; returns the number added
+	 */
+	public long addGames(Path path, int skipPlies) throws IOException {
+		GameRecord record = new GameRecord();
+		Mancala game = new Mancala();
+		PackedBoard board = new PackedBoard();
+		int[] sample = new int[Features.COUNT];
+		int before = size;
+		try (GameRecordReader reader = GameRecordReader.open(path)) {
+			while (reader.next(record)) {
+				GameStatus status = record.getStatus();
+				if (!record.getRuleSet().equals(RuleSet.STANDARD) || status == GameStatus.IN_PROGRESS)
+					continue;
+				int winner = (status == GameStatus.PLAYER1WON) ? 1 : (status == GameStatus.PLAYER2WON) ? 2 : 0;
+				game.reset();
+				for (int ply = 0; ply < record.getNumOfMoves(); ply++) {
+					if (ply >= skipPlies) {
+						board.load(game);
+						Features.extract(board, sample);
+						add(sample, (winner == 0) ? 1 : (winner == game.getPlayer()) ? 2 : 0);
+					}
+					int pitNum = RuleSet.STANDARD.getFirstHouse(game.getPlayer()) + record.getMove(ply);
+					if ((game.legalMoves() >>> pitNum & 1) == 0)
+						throw new IOException(path + ": illegal move in a record at ply " + ply);
+					game.applyMove(pitNum);
+				}
+			}
+		}
+		return size - before;
+	}
+
+	private void add(int[] sample, int result) {
+		if (size == results.length) {
+			if (size > Integer.MAX_VALUE / Features.COUNT / 2)
+				throw new IllegalStateException("Too many samples");
+			results = Arrays.copyOf(results, size * 2);
+			features = Arrays.copyOf(features, size * 2 * Features.COUNT);
+		}
+		for (int i = 0; i < Features.COUNT; i++)
+			features[size * Features.COUNT + i] = (byte) sample[i];
+		results[size++] = (byte) result;
+	}
+
+	/**
+	 * Returns the number of samples
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Mean squared error of the predictions sigmoid(scale * evaluation)
+	 */
+	public double loss(double[] weights, double scale) {
+		return sum(weights, scale, false)[0] / size;
+	}
+
+	/**
+	 * Fits the scale k of the predictions to the given weights (golden section search)
+	 */
+	public double fitScale(double[] weights) {
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		double low = MIN_SCALE, high = MAX_SCALE;
+		double a = high - ratio * (high - low), b = low + ratio * (high - low);
+		double lossA = loss(weights, a), lossB = loss(weights, b);
+		while (high - low > 1e-4) {
+			if (lossA < lossB) {
+				high = b;
+				b = a;
+				lossB = lossA;
+				a = high - ratio * (high - low);
+				lossA = loss(weights, a);
+			} else {
+				low = a;
+				a = b;
+				lossA = lossB;
+				b = low + ratio * (high - low);
+				lossB = loss(weights, b);
+			}
+		}
+		return (low + high) / 2;
+	}
+
+	/**
+	 * Minimises the loss from the given weights with the scale fixed; returns the new weights
+	 */
+	public double[] tune(double[] start, double scale, int iterations, double learningRate) {
+		if (size == 0)
+			throw new IllegalStateException("No samples");
+		double[] weights = start.clone();
+		double[] m = new double[Features.COUNT], v = new double[Features.COUNT];
+		for (int t = 1; t <= iterations; t++) {
+			double[] totals = sum(weights, scale, true);
+			for (int i = 0; i < Features.COUNT; i++) {
+				double gradient = 2 * totals[i + 1] / size;
+				m[i] = BETA1 * m[i] + (1 - BETA1) * gradient;
+				v[i] = BETA2 * v[i] + (1 - BETA2) * gradient * gradient;
+				double mHat = m[i] / (1 - Math.pow(BETA1, t)), vHat = v[i] / (1 - Math.pow(BETA2, t));
+				weights[i] -= learningRate * mHat / (Math.sqrt(vHat) + EPSILON);
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Sums the squared errors (totals[0]) and, if asked, the error gradient per weight
+	 * (totals[1..COUNT], without the factor 2) over all samples in parallel
+	 */
+	private double[] sum(double[] weights, double scale, boolean gradient) {
+		int chunks = threads * CHUNKS_PER_THREAD;
+		List<Callable<double[]>> tasks = new ArrayList<>();
+		for (int c = 0; c < chunks; c++) {
+			int from = (int) ((long) size * c / chunks), to = (int) ((long) size * (c + 1) / chunks);
+			tasks.add(() -> sumChunk(weights, scale, gradient, from, to));
+		}
+		double[] totals = new double[Features.COUNT + 1];
+		try {
+			for (Future<double[]> future : executor.invokeAll(tasks)) {
+				double[] chunk = future.get();
+				for (int i = 0; i < totals.length; i++)
+					totals[i] += chunk[i];
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Tuning interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tuning task failed", e.getCause());
+		}
+		return totals;
+	}
+
+	private double[] sumChunk(double[] weights, double scale, boolean gradient, int from, int to) {
+		double w0 = weights[0], w1 = weights[1], w2 = weights[2], w3 = weights[3], w4 = weights[4];
+		double error = 0, g0 = 0, g1 = 0, g2 = 0, g3 = 0, g4 = 0;
+		for (int s = from; s < to; s++) {
+			int f = s * Features.COUNT;
+			int f0 = features[f], f1 = features[f + 1], f2 = features[f + 2], f3 = features[f + 3], f4 = features[f + 4];
+			double prediction = 1 / (1 + Math.exp(-scale * (w0 * f0 + w1 * f1 + w2 * f2 + w3 * f3 + w4 * f4)));
+			double difference = prediction - results[s] * 0.5;
+			error += difference * difference;
+			if (gradient) {
+				double slope = difference * prediction * (1 - prediction) * scale;
+				g0 += slope * f0;
+				g1 += slope * f1;
+				g2 += slope * f2;
+				g3 += slope * f3;
+				g4 += slope * f4;
+			}
+		}
+		return new double[] { error, g0, g1, g2, g3, g4 };
+	}
+
+	/**
+	 * Stops the threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Tunes the weights file (starting from its weights if it exists):
+	 * EvalTuner [records file] [weights file] [iterations] [threads]
+	 */
+	public static void main(String[] args) throws IOException {
+		Path records = Paths.get(args.length > 0 ? args[0] : "games.rec");
+		Path output = Paths.get(args.length > 1 ? args[1] : LinearEvaluator.DEFAULT_FILE);
+		int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		LinearEvaluator start = Files.exists(output) ? LinearEvaluator.load(output)
+				: new LinearEvaluator(new double[] { 1, 0, 0, 0, 0 });
+		EvalTuner tuner = new EvalTuner(threads);
+		try {
+			long begin = System.nanoTime();
+			tuner.addGames(records, DEFAULT_SKIP_PLIES);
+			System.out.printf("%d positions from %s in %.1f s%n", tuner.size(), records, (System.nanoTime() - begin) / 1e9);
+
+			begin = System.nanoTime();
+			double[] weights = start.getWeights();
+			double scale = tuner.fitScale(weights);
+			double before = tuner.loss(weights, scale);
+			System.out.printf("start %s, k %.4f, loss %.6f%n", start, scale, before);
+			weights = tuner.tune(weights, scale, iterations, 0.01);
+			double after = tuner.loss(weights, scale);
+
+			LinearEvaluator tuned = new LinearEvaluator(weights, start.getRevision() + 1);
+			System.out.printf("tuned %s, loss %.6f (%d iterations, %d threads, %.1f s)%n",
+					tuned, after, iterations, threads, (System.nanoTime() - begin) / 1e9);
+			tuned.write(output, "tuned on " + tuner.size() + " positions of " + records.getFileName(),
+					String.format("k %.4f, loss %.6f -> %.6f", scale, before, after));
+			System.out.println("written to " + output);
+		} finally {
+			tuner.shutdown();
+		}
+	}
+}
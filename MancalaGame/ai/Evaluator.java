@@ -0,0 +1,37 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * Evaluator Interface
+ *
+ * Purpose: This interface scores the leaf positions of a search for the
+ * player to move, in SCALE units per marble (so fractions of a marble can
+ * be told apart). The caller supplies a scratch array of Features.COUNT
+ * ints for the features, so an evaluator keeps no state of its own and one
+ * instance can be shared by all search threads. Finished games and endgame
+ * database positions are scored exactly by the search, not by an evaluator.
+ *
+ * Methods:
+ * evaluate(PackedBoard, int[]) - returns int
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+import MancalaGame.PackedBoard;
+
+public interface Evaluator {
+	int SCALE = 100;  // score units per marble
+	int MAX_SCORE = 100 * SCALE;  // evaluations are kept within -MAX_SCORE..MAX_SCORE
+
+	/**
+	 * The store difference alone (the classic evaluation)
+	 */
+	Evaluator STORE_DIFFERENCE = (board, features) -> {
+		int difference = board.getPit(Mancala.STORE1) - board.getPit(Mancala.STORE2);
+		return (board.getCurrentPlayer() == 1 ? difference : -difference) * SCALE;
+	};
+
+	/**
+	 * Returns the score of the position for the player to move (features is scratch space)
+	 */
+	int evaluate(PackedBoard board, int[] features);
+}
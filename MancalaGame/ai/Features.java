@@ -0,0 +1,99 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * Features Class
+ *
+ * Purpose: This class extracts the evaluation features of a packed position
+ * into a primitive array, in one pass over the houses and without creating
+ * any objects. Every feature is a difference between the player to move and
+ * the opponent, so a position scores the negative for the other side:
+ * - STORE_DIFFERENCE: marbles in the stores
+ * - SEEDS_ON_SIDE: marbles left in the houses
+ * - CAPTURE_THREATS: marbles the best capture would win right now (for the
+ *   opponent: if it were the opponent's turn)
+ * - FREE_TURNS: houses whose last marble would land in the own store
+ * - EMPTY_HOUSES: empty houses
+ * The evaluators (see LinearEvaluator) weight them and EvalTuner extracts
+ * them from recorded games to fit the weights.
+ *
+ * Methods:
+ * extract(PackedBoard, int[]) - returns void
+ * extract(PackedBoard, int[], int) - returns void
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+import MancalaGame.PackedBoard;
+import MancalaGame.Sowing;
+
+public final class Features {
+	public static final int STORE_DIFFERENCE = 0;
+	public static final int SEEDS_ON_SIDE = 1;
+	public static final int CAPTURE_THREATS = 2;
+	public static final int FREE_TURNS = 3;
+	public static final int EMPTY_HOUSES = 4;
+	public static final int COUNT = 5;
+
+	/**
+	 * Feature names as used in weights files
+	 */
+	public static final String[] NAMES = { "storeDifference", "seedsOnSide", "captureThreats", "freeTurns", "emptyHouses" };
+
+	private static final int N_HOUSES = Mancala.N_PITS - 1;  // houses per player
+	private static final Sowing SOWING = Sowing.STANDARD;
+	private static final int CYCLE = SOWING.getCycleLength();
+
+	private Features() {
+	}
+
+	/**
+	 * Writes the COUNT features of the position to features[0..COUNT-1]
+	 */
+	public static void extract(PackedBoard board, int[] features) {
+		extract(board, features, 0);
+	}
+
+	/**
+	 * Writes the COUNT features of the position to features[offset..offset+COUNT-1]
+	 */
+	public static void extract(PackedBoard board, int[] features, int offset) {
+		int player = board.getCurrentPlayer();
+		int ownStore = (player == 1) ? Mancala.STORE1 : Mancala.STORE2;
+		int otherStore = (player == 1) ? Mancala.STORE2 : Mancala.STORE1;
+
+		features[offset + STORE_DIFFERENCE] = board.getPit(ownStore) - board.getPit(otherStore);
+		features[offset + SEEDS_ON_SIDE] = board.getHouseTotal(player) - board.getHouseTotal(3 - player);
+
+		int captures = 0, freeTurns = 0, empty = 0;
+		for (int side = 1; side <= Mancala.N_PLAYERS; side++) {
+			int store = (side == 1) ? Mancala.STORE1 : Mancala.STORE2;
+			int bestCapture = 0, sideFreeTurns = 0, sideEmpty = 0;
+			for (int pitNum = store + 1; pitNum <= store + N_HOUSES; pitNum++) {
+				int marbles = board.getPit(pitNum);
+				if (marbles == 0) {
+					sideEmpty++;
+					continue;
+				}
+				int last = SOWING.lastPit(side, pitNum, marbles);
+				if (last == store) {
+					sideFreeTurns++;
+				} else if (last > store && last <= store + N_HOUSES
+						&& (marbles == CYCLE || (marbles < CYCLE && board.getPit(last) == 0))) {
+					// lands in an empty own house (or a full lap back in the emptied one): the opposite
+					// house is captured, with the marble it got if the sowing went round the board
+					int opposite = Mancala.BOARD_SIZE - last;
+					int captured = board.getPit(opposite) + (last > pitNum || marbles == CYCLE ? 1 : 0);
+					if (captured > 0)
+						bestCapture = Math.max(bestCapture, captured + 1);
+				}
+			}
+			int sign = (side == player) ? 1 : -1;
+			captures += sign * bestCapture;
+			freeTurns += sign * sideFreeTurns;
+			empty += sign * sideEmpty;
+		}
+		features[offset + CAPTURE_THREATS] = captures;
+		features[offset + FREE_TURNS] = freeTurns;
+		features[offset + EMPTY_HOUSES] = empty;
+	}
+}
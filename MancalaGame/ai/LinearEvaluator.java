@@ -0,0 +1,150 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * LinearEvaluator Class
+ *
+ * Purpose: This class scores a position as a weighted sum of its features
+ * (see Features), with the weights in marbles per feature unit; weights
+ * {1, 0, 0, 0, 0} give the plain store difference. The weights are turned
+ * into integers once, so an evaluation is a feature pass and five integer
+ * multiplications. Weights are fitted by EvalTuner and kept in a versioned
+ * text file that the engines load at startup:
+ *
+ *   # comments
+ *   version=1            (file format, checked when loading)
+ *   revision=3           (counts the tuning runs that produced the weights)
+ *   storeDifference=1.0  (one line per feature name, missing ones are 0)
+ *   ...
+ *
+ * Methods:
+ * LinearEvaluator(double[]) - constructor of this class
+ * LinearEvaluator(double[], int) - constructor with a revision number
+ * getWeights() - returns double[]
+ * getRevision() - returns int
+ * evaluate(PackedBoard, int[]) - returns int
+ * load(Path) - returns LinearEvaluator
+ * write(Path, String...) - returns void
+ * toString() - returns String
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import MancalaGame.PackedBoard;
+
+public class LinearEvaluator implements Evaluator {
+	public static final String DEFAULT_FILE = "eval.weights";
+	static final int VERSION = 1;
+
+	private final double[] weights;
+	private final int[] scaled;  // weights in score units per feature unit
+	private final int revision;
+
+	// constructor
+	public LinearEvaluator(double[] weights) {
+		this(weights, 0);
+	}
+
+	// constructor with a revision number
+	public LinearEvaluator(double[] weights, int revision) {
+		if (weights.length != Features.COUNT)
+			throw new IllegalArgumentException("Need " + Features.COUNT + " weights, got " + weights.length);
+		this.weights = weights.clone();
+		this.revision = revision;
+		scaled = new int[Features.COUNT];
+		for (int i = 0; i < Features.COUNT; i++) {
+			if (!(Math.abs(weights[i]) <= Evaluator.MAX_SCORE / Evaluator.SCALE))  // also rejects NaN
+				throw new IllegalArgumentException("Weight out of range: " + Features.NAMES[i] + "=" + weights[i]);
+			scaled[i] = (int) Math.round(weights[i] * Evaluator.SCALE);
+		}
+	}
+
+	public double[] getWeights() {
+		return weights.clone();
+	}
+
+	public int getRevision() {
+		return revision;
+	}
+
+	@Override
+	public int evaluate(PackedBoard board, int[] features) {
+		Features.extract(board, features);
+		int score = scaled[Features.STORE_DIFFERENCE] * features[Features.STORE_DIFFERENCE]
+				+ scaled[Features.SEEDS_ON_SIDE] * features[Features.SEEDS_ON_SIDE]
+				+ scaled[Features.CAPTURE_THREATS] * features[Features.CAPTURE_THREATS]
+				+ scaled[Features.FREE_TURNS] * features[Features.FREE_TURNS]
+				+ scaled[Features.EMPTY_HOUSES] * features[Features.EMPTY_HOUSES];
+		return Math.max(-Evaluator.MAX_SCORE, Math.min(Evaluator.MAX_SCORE, score));
+	}
+
+	/**
+	 * Reads a weights file
+	 */
+	public static LinearEvaluator load(Path path) throws IOException {
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		double[] weights = new double[Features.COUNT];
+		int version = -1, revision = 0;
+		for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+			String line = lines.get(lineNumber - 1).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			int equals = line.indexOf('=');
+			if (equals < 0)
+				throw new IOException(path + ":" + lineNumber + ": expected name=value");
+			String name = line.substring(0, equals).trim(), value = line.substring(equals + 1).trim();
+			try {
+				if (name.equals("version")) {
+					version = Integer.parseInt(value);
+				} else if (name.equals("revision")) {
+					revision = Integer.parseInt(value);
+				} else {
+					int feature = Arrays.asList(Features.NAMES).indexOf(name);
+					if (feature < 0)
+						throw new IOException(path + ":" + lineNumber + ": unknown feature " + name);
+					weights[feature] = Double.parseDouble(value);
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException(path + ":" + lineNumber + ": not a number: " + value);
+			}
+		}
+		if (version != VERSION)
+			throw new IOException(path + " is not a version " + VERSION + " weights file");
+		try {
+			return new LinearEvaluator(weights, revision);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(path + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the weights file, with the comments at the top
+	 */
+	public void write(Path path, String... comments) throws IOException {
+		try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			out.write("# Mancala evaluation weights (marbles per feature unit)\n");
+			for (String comment : comments)
+				out.write("# " + comment + "\n");
+			out.write("version=" + VERSION + "\n");
+			out.write("revision=" + revision + "\n");
+			for (int i = 0; i < Features.COUNT; i++)
+				out.write(Features.NAMES[i] + "=" + String.format(Locale.ROOT, "%.6f", weights[i]) + "\n");
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("revision ").append(revision);
+		for (int i = 0; i < Features.COUNT; i++)
+			text.append(i == 0 ? ": " : ", ").append(Features.NAMES[i]).append(' ')
+				.append(String.format(Locale.ROOT, "%.3f", weights[i]));
+		return text.toString();
+	}
+}
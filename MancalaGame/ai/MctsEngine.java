@@ -0,0 +1,297 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * MctsEngine Class
+ *
+ * Purpose: This class implements a computer opponent based on Monte Carlo
+ * Tree Search (UCT). Every playout walks down the tree choosing the child
+ * with the best upper confidence bound, adds the children of the node it
+ * ends on (once that node has been visited before), plays the game out with
+ * random moves and adds the result (1 for a win, 1/2 for a draw) to every
+ * node on the way back up. A free turn needs no special handling, since each
+ * node remembers which player made the move into it.
+ *
+ * The tree is not made of objects: node i is entry i of a set of parallel
+ * arrays (visits, wins, first child, ...) allocated once, and the children
+ * of a node are stored next to each other. Every search starts over at the
+ * beginning of the arena, so nothing is allocated or collected between
+ * moves. When the arena is full the tree stops growing and the remaining
+ * playouts only refine the existing nodes. All playouts run on one scratch
+ * board.
+ *
+ * The search stops after the playout limit, at the time limit or when
+ * stop() is called, whichever comes first. In the returned SearchResult the
+ * score is the win rate of the best move in percent, the depth is the
+ * deepest node of the tree and the node count is the number of playouts.
+ *
+ * Methods:
+ * MctsEngine() - constructor of this class
+ * MctsEngine(int) - constructor with a given arena size (in nodes)
+ * setExploration(double) - returns void
+ * setMaxPlayouts(long) - returns void
+ * setTimeLimitMillis(long) - returns void
+ * setSeed(long) - returns void
+ * stop() - returns void
+ * search(Mancala) - returns SearchResult
+ * search(PackedBoard) - returns SearchResult
+ * main(String[]) - searches the starting position and prints the playout rate
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.PackedBoard;
+import MancalaGame.metrics.EngineMetrics;
+
+public class MctsEngine {
+	public static final int DEFAULT_NODES = 1 << 20;
+	public static final long DEFAULT_PLAYOUTS = 100_000;
+	public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+	private static final int N_HOUSES = Mancala.N_PITS - 1;  // houses per player
+	private static final int UNEXPANDED = -1;  // firstChild of a node without children
+	private static final int TIME_CHECK_MASK = 255;  // check the clock every 256 playouts
+
+	// node arena: node i is entry i of every array, node 0 is the root
+	private final int[] visits;
+	private final float[] wins;  // results for the player who made the move into the node
+	private final int[] firstChild;  // children are stored at firstChild .. firstChild + childCount - 1
+	private final byte[] childCount;
+	private final int[] parent;
+	private final byte[] move;  // pit number of the move into the node
+	private final byte[] mover;  // player who made that move
+	private int nodeCount;
+
+	private final PackedBoard root = new PackedBoard();
+	private final PackedBoard scratch = new PackedBoard();  // walks down the tree and plays the rollouts
+	private SplittableRandom random = new SplittableRandom();
+
+	private double exploration = DEFAULT_EXPLORATION;
+	private long maxPlayouts = DEFAULT_PLAYOUTS;  // 0 means no limit
+	private long timeLimitNanos = 0;  // 0 means no time limit
+	private final AtomicBoolean stopSignal = new AtomicBoolean();
+
+	// constructor
+	public MctsEngine() {
+		this(DEFAULT_NODES);
+	}
+
+	// constructor with a given arena size
+	public MctsEngine(int maxNodes) {
+		if (maxNodes < 1 + N_HOUSES)
+			throw new IllegalArgumentException("The arena needs room for at least " + (1 + N_HOUSES) + " nodes");
+		visits = new int[maxNodes];
+		wins = new float[maxNodes];
+		firstChild = new int[maxNodes];
+		childCount = new byte[maxNodes];
+		parent = new int[maxNodes];
+		move = new byte[maxNodes];
+		mover = new byte[maxNodes];
+	}
+
+	/**
+	 * Sets the exploration constant C of the UCT formula
+	 */
+	public void setExploration(double exploration) {
+		if (!(exploration >= 0))
+			throw new IllegalArgumentException("Exploration must not be negative");
+		this.exploration = exploration;
+	}
+
+	/**
+	 * Sets the number of playouts per search (0 for no limit)
+	 */
+	public void setMaxPlayouts(long playouts) {
+		if (playouts < 0)
+			throw new IllegalArgumentException("Playout limit must not be negative");
+		maxPlayouts = playouts;
+	}
+
+	/**
+	 * Sets the time limit per search (0 for no limit)
+	 */
+	public void setTimeLimitMillis(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("Time limit must not be negative");
+		timeLimitNanos = millis * 1_000_000L;
+	}
+
+	/**
+	 * Seeds the random generator used for the rollouts
+	 */
+	public void setSeed(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Stops the running search (may be called from any thread)
+	 */
+	public void stop() {
+		stopSignal.set(true);
+	}
+
+	/**
+	 * Search the current position of a game
+	 */
+	public SearchResult search(Mancala mancala) {
+		root.load(mancala);
+		return runSearch();
+	}
+
+	/**
+	 * Search a packed position
+	 */
+	public SearchResult search(PackedBoard position) {
+		root.copyFrom(position);
+		return runSearch();
+	}
+
+	private SearchResult runSearch() {
+		if (maxPlayouts == 0 && timeLimitNanos == 0)
+			throw new IllegalStateException("Either a playout or a time limit is needed");
+		long start = System.nanoTime();
+		long deadline = start + timeLimitNanos;
+		stopSignal.set(false);
+
+		scratch.copyFrom(root);
+		if (scratch.checkGameOver() != GameStatus.IN_PROGRESS)
+			return new SearchResult(-1, 0, 0, 0, System.nanoTime() - start);
+
+		nodeCount = 0;
+		newNode(-1, -1, 3 - root.getCurrentPlayer());
+
+		long playouts = 0;
+		int maxTreeDepth = 0;
+		while ((maxPlayouts == 0 || playouts < maxPlayouts) && !stopSignal.get()) {
+			if ((playouts & TIME_CHECK_MASK) == 0 && timeLimitNanos > 0 && playouts > 0 && System.nanoTime() >= deadline)
+				break;
+
+			// selection
+			scratch.copyFrom(root);
+			int node = 0;
+			int depth = 0;
+			while (firstChild[node] != UNEXPANDED) {
+				node = selectChild(node);
+				scratch.applyMove(move[node]);
+				depth++;
+			}
+
+			// expansion and rollout
+			if (scratch.checkGameOver() == GameStatus.IN_PROGRESS) {
+				if ((node == 0 || visits[node] > 0) && expand(node)) {
+					node = firstChild[node];
+					scratch.applyMove(move[node]);
+					depth++;
+				}
+				while (scratch.checkGameOver() == GameStatus.IN_PROGRESS)
+					scratch.applyMove(randomMove(scratch));
+			}
+			maxTreeDepth = Math.max(maxTreeDepth, depth);
+
+			// backpropagation
+			int difference = scratch.getPit(Mancala.STORE1) - scratch.getPit(Mancala.STORE2);
+			float result = (difference > 0) ? 1f : (difference < 0) ? 0f : 0.5f;  // for player 1
+			for (; node != -1; node = parent[node]) {
+				visits[node]++;
+				wins[node] += (mover[node] == 1) ? result : 1f - result;
+			}
+			playouts++;
+		}
+
+		// the most visited move is the most reliable one
+		int best = firstChild[0];
+		for (int child = best + 1; child < firstChild[0] + childCount[0]; child++)
+			if (visits[child] > visits[best])
+				best = child;
+		int winRate = (visits[best] == 0) ? 0 : Math.round(100 * wins[best] / visits[best]);
+		long elapsed = System.nanoTime() - start;
+		if (EngineMetrics.ENABLED) {
+			EngineMetrics.nodesSearched(playouts);
+			EngineMetrics.searchFinished(elapsed);
+		}
+		return new SearchResult(move[best], winRate, maxTreeDepth, playouts, elapsed);
+	}
+
+	/**
+	 * Adds a node to the arena and returns its index
+	 */
+	private int newNode(int parentNode, int pitNum, int player) {
+		int node = nodeCount++;
+		visits[node] = 0;
+		wins[node] = 0;
+		firstChild[node] = UNEXPANDED;
+		childCount[node] = 0;
+		parent[node] = parentNode;
+		move[node] = (byte) pitNum;
+		mover[node] = (byte) player;
+		return node;
+	}
+
+	/**
+	 * Adds a child for every legal move of the scratch board; false if the arena is full
+	 */
+	private boolean expand(int node) {
+		if (nodeCount + N_HOUSES > visits.length)
+			return false;
+		int player = scratch.getCurrentPlayer();
+		int first = nodeCount;
+		for (int mask = scratch.legalMoves(); mask != 0; mask &= mask - 1)
+			newNode(node, Integer.numberOfTrailingZeros(mask), player);
+		firstChild[node] = first;
+		childCount[node] = (byte) (nodeCount - first);
+		return true;
+	}
+
+	/**
+	 * Returns the child with the highest upper confidence bound (unvisited children first)
+	 */
+	private int selectChild(int node) {
+		int first = firstChild[node];
+		int end = first + childCount[node];
+		double logVisits = Math.log(visits[node]);
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int n = visits[child];
+			if (n == 0)
+				return child;
+			double value = wins[child] / n + exploration * Math.sqrt(logVisits / n);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Picks a random legal move of the player to move
+	 */
+	private int randomMove(PackedBoard board) {
+		int mask = board.legalMoves();
+		for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;  // drop the lowest moves until the chosen one is the lowest
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	/**
+	 * Searches the starting position: MctsEngine [playouts] [time ms] [exploration]
+	 */
+	public static void main(String[] args) {
+		MctsEngine engine = new MctsEngine();
+		if (args.length > 0)
+			engine.setMaxPlayouts(Long.parseLong(args[0]));
+		if (args.length > 1)
+			engine.setTimeLimitMillis(Long.parseLong(args[1]));
+		if (args.length > 2)
+			engine.setExploration(Double.parseDouble(args[2]));
+
+		SearchResult result = engine.search(new PackedBoard());
+		System.out.printf("move %d win rate %d%% tree depth %d playouts %d time %.3f ms (%d playouts/s)%n",
+				result.getBestMove(), result.getScore(), result.getDepth(), result.getNodes(),
+				result.getElapsedNanos() / 1e6, result.getNodesPerSecond());
+	}
+}
@@ -0,0 +1,132 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * OpeningBook Class
+ *
+ * Purpose: This class reads an opening book written by OpeningBookBuilder.
+ * The file is a list of fixed-size entries sorted by position hash, mapped
+ * into memory and binary-searched, so opening a book reads nothing but the
+ * header and a lookup touches about log2(entries) entries.
+ *
+ * File layout: MAGIC (int), VERSION (int), number of entries (long), then
+ * ENTRY_SIZE bytes per entry: Zobrist hash (long), best move (short, pit
+ * number), score (short, store difference for the player to move at the
+ * end of the searched line), search depth (short), reserved (short).
+ *
+ * Methods:
+ * open(Path) - returns OpeningBook
+ * size() - returns int
+ * find(long) - returns int
+ * getHash(int) - returns long
+ * getMove(int) - returns int
+ * getScore(int) - returns int
+ * getDepth(int) - returns int
+ * lookup(PackedBoard) - returns SearchResult
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import MancalaGame.Mancala.MoveType;
+import MancalaGame.PackedBoard;
+
+public class OpeningBook {
+	static final int MAGIC = 0x4D4F424B;  // "MOBK"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 16;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int size;
+
+	private OpeningBook(FileChannel channel, MappedByteBuffer buffer, int size) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.size = size;
+	}
+
+	/**
+	 * Maps a book file
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+				throw new IOException(path + " is not an opening book");
+
+			long entries = buffer.getLong(8);
+			if (entries < 0 || buffer.limit() != HEADER_SIZE + entries * ENTRY_SIZE)
+				throw new IOException(path + " has the wrong size");
+			return new OpeningBook(channel, buffer, (int) entries);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of positions in the book
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the entry of a position hash, or -1 if the position is not in the book
+	 */
+	public int find(long hash) {
+		int low = 0, high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long key = getHash(middle);
+			if (key < hash)
+				low = middle + 1;
+			else if (key > hash)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	public long getHash(int entry) {
+		return buffer.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+	}
+
+	public int getMove(int entry) {
+		return buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+	}
+
+	public int getScore(int entry) {
+		return buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 10);
+	}
+
+	public int getDepth(int entry) {
+		return buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+	}
+
+	/**
+	 * Returns the book move of a position as a search result, or null if the position is not in the book
+	 */
+	public SearchResult lookup(PackedBoard position) {
+		long start = System.nanoTime();
+		int entry = find(position.getHash());
+		if (entry < 0 || position.checkMove(getMove(entry)) != MoveType.SUCCESS)  // the move check guards against hash collisions
+			return null;
+		return new SearchResult(getMove(entry), getScore(entry), getDepth(entry), 0, System.nanoTime() - start);
+	}
+
+	/**
+	 * Closes the file (the mapping stays valid until it is garbage collected)
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+}
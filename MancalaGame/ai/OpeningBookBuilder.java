@@ -0,0 +1,227 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * OpeningBookBuilder Class
+ *
+ * Purpose: This class builds an opening book: every position reached in the
+ * first plies of a game (from the starting position of Mancala.reset, with
+ * free turns counted as plies) is searched to a fixed depth, and the best
+ * move, score and depth are written to a file sorted by position hash (see
+ * OpeningBook). Building is incremental: the entries of an existing book
+ * are merged in first, positions it already holds at the requested depth
+ * or deeper are not searched again, and an entry is only replaced by a
+ * deeper one. The positions are searched by a fixed number of threads, each
+ * with its own SearchEngine and transposition table.
+ *
+ * Methods:
+ * OpeningBookBuilder(int, int) - constructor of this class
+ * setThreads(int) - returns void
+ * merge(OpeningBook) - returns void
+ * build() - returns int
+ * size() - returns int
+ * write(Path) - returns void
+ * main(String[]) - builds or extends a book file
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.PackedBoard;
+
+public class OpeningBookBuilder {
+	private static final int TABLE_MB = 64;  // transposition table per thread
+
+	private final int plies;
+	private final int depth;
+	private int threads = 1;
+	private final Map<Long, Long> entries = new HashMap<>();  // hash -> packed move, score and depth (see pack)
+
+	// constructor
+	public OpeningBookBuilder(int plies, int depth) {
+		if (plies < 1)
+			throw new IllegalArgumentException("At least one ply is needed");
+		if (depth < 1 || depth > SearchEngine.MAX_DEPTH)
+			throw new IllegalArgumentException("Depth must be between 1 and " + SearchEngine.MAX_DEPTH);
+		this.plies = plies;
+		this.depth = depth;
+	}
+
+	public void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed");
+		this.threads = threads;
+	}
+
+	/**
+	 * Adds the entries of an existing book (deeper entries win)
+	 */
+	public void merge(OpeningBook book) {
+		for (int entry = 0; entry < book.size(); entry++)
+			put(book.getHash(entry), book.getMove(entry), book.getScore(entry), book.getDepth(entry));
+	}
+
+	private void put(long hash, int move, int score, int searchDepth) {
+		Long old = entries.get(hash);
+		if (old == null || unpackDepth(old) < searchDepth)
+			entries.put(hash, pack(move, score, searchDepth));
+	}
+
+	private static long pack(int move, int score, int searchDepth) {
+		return ((long) (move & 0xFFFF) << 32) | ((long) (score & 0xFFFF) << 16) | (searchDepth & 0xFFFF);
+	}
+
+	private static int unpackDepth(long packed) {
+		return (int) (packed & 0xFFFF);
+	}
+
+	/**
+	 * Searches every book position not yet searched deeply enough; returns the number searched
+	 */
+	public int build() {
+		List<PackedBoard> positions = new ArrayList<>();
+		for (PackedBoard position : enumeratePositions()) {
+			Long old = entries.get(position.getHash());
+			if (old == null || unpackDepth(old) < depth)
+				positions.add(position);
+		}
+
+		SearchResult[] results = new SearchResult[positions.size()];
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					SearchEngine engine = new SearchEngine(new TranspositionTable(TABLE_MB));
+					engine.setMaxDepth(depth);
+					for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement())
+						results[i] = engine.search(positions.get(i));
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Book building interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Book search failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < results.length; i++)
+			put(positions.get(i).getHash(), results[i].getBestMove(), results[i].getScore(), results[i].getDepth());
+		return results.length;
+	}
+
+	/**
+	 * Returns the distinct positions (not yet over) reached after 0 .. plies-1 moves
+	 */
+	private List<PackedBoard> enumeratePositions() {
+		List<PackedBoard> positions = new ArrayList<>();
+		Set<Long> seen = new HashSet<>();
+		List<PackedBoard> frontier = new ArrayList<>();
+		frontier.add(new PackedBoard());
+		seen.add(frontier.get(0).getHash());
+
+		for (int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+			positions.addAll(frontier);
+			if (ply == plies - 1)
+				break;
+			List<PackedBoard> nextFrontier = new ArrayList<>();
+			for (PackedBoard position : frontier) {
+				for (int mask = position.legalMoves(); mask != 0; mask &= mask - 1) {
+					int pitNum = Integer.numberOfTrailingZeros(mask);
+					PackedBoard child = new PackedBoard(position);
+					child.applyMove(pitNum);
+					if (child.checkGameOver() == GameStatus.IN_PROGRESS && seen.add(child.getHash()))
+						nextFrontier.add(child);
+				}
+			}
+			frontier = nextFrontier;
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns the number of entries collected so far
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Writes the entries as a book file sorted by hash
+	 */
+	public void write(Path path) throws IOException {
+		long[] hashes = new long[entries.size()];
+		int n = 0;
+		for (long hash : entries.keySet())
+			hashes[n++] = hash;
+		Arrays.sort(hashes);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + hashes.length * OpeningBook.ENTRY_SIZE);
+			buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putLong(hashes.length);
+			for (long hash : hashes) {
+				long packed = entries.get(hash);
+				buffer.putLong(hash);
+				buffer.putShort((short) (packed >>> 32));
+				buffer.putShort((short) (packed >>> 16));
+				buffer.putShort((short) packed);
+				buffer.putShort((short) 0);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Builds or extends a book: OpeningBookBuilder [plies] [depth] [file] [threads]
+	 */
+	public static void main(String[] args) throws IOException {
+		int plies = (args.length > 0) ? Integer.parseInt(args[0]) : 6;
+		int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+		Path path = Paths.get(args.length > 2 ? args[2] : "opening.book");
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth);
+		builder.setThreads(threads);
+		if (Files.exists(path)) {
+			OpeningBook book = OpeningBook.open(path);
+			builder.merge(book);
+			book.close();
+		}
+		int searched = builder.build();
+
+		// write next to the old book and swap it in, so a book in use is never seen half written
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		builder.write(temporary);
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		System.out.printf("%d positions searched to depth %d, %d entries written to %s in %.1f s%n",
+				searched, depth, builder.size(), path, (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,190 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * ParallelSearch Class
+ *
+ * Purpose: This class runs a Lazy SMP search: every thread runs its own
+ * SearchEngine (own boards and move lists, nothing shared but immutable
+ * tables) on the same root position, and all of them share one lock-free
+ * TranspositionTable. The helper threads fill the table with results the
+ * main thread then finds instead of searching them again; half of the helpers
+ * start one iteration deeper so the threads drift apart in the tree. The
+ * main thread honours the depth and time limits, and when it finishes all
+ * helpers are stopped. The reported node count covers every thread.
+ *
+ * Methods:
+ * ParallelSearch(int, int) - constructor of this class
+ * setMaxDepth(int) - returns void
+ * setTimeLimitMillis(long) - returns void
+ * getThreads() - returns int
+ * setEndgameDatabase(EndgameDatabase) - returns void
+ * setOpeningBook(OpeningBook) - returns void
+ * setEvaluator(Evaluator) - returns void
+ * search(Mancala) - returns SearchResult
+ * search(PackedBoard) - returns SearchResult
+ * stop() - returns void
+ * shutdown() - returns void
+ * main(String[]) - measures time to depth for 1..N threads
+ *
+ ****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import MancalaGame.Mancala;
+import MancalaGame.PackedBoard;
+import MancalaGame.metrics.EngineMetrics;
+
+public class ParallelSearch {
+	private final TranspositionTable table;
+	private final SearchEngine mainEngine;
+	private final SearchEngine[] helpers;
+	private final ExecutorService executor;  // runs the helpers; the main engine runs in the calling thread
+	private final AtomicBoolean stopSignal = new AtomicBoolean();  // stops the helpers
+	private final AtomicBoolean mainStopSignal = new AtomicBoolean();  // stops the main engine (see stop())
+	private final PackedBoard root = new PackedBoard();
+	private OpeningBook book;  // null when no book is used
+
+	// constructor
+	public ParallelSearch(int threads, int tableMegabytes) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed");
+		table = new TranspositionTable(tableMegabytes);
+		mainEngine = new SearchEngine(table);
+		mainEngine.setStopSignal(mainStopSignal);
+		helpers = new SearchEngine[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new SearchEngine(table);
+			helpers[i].setMaxDepth(SearchEngine.MAX_DEPTH);  // helpers run until the main engine is done
+			helpers[i].setStopSignal(stopSignal);
+		}
+		executor = (helpers.length == 0) ? null : Executors.newFixedThreadPool(helpers.length, runnable -> {
+			Thread thread = new Thread(runnable, "search-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		mainEngine.setMaxDepth(maxDepth);
+	}
+
+	public void setTimeLimitMillis(long millis) {
+		mainEngine.setTimeLimitMillis(millis);
+	}
+
+	/**
+	 * Uses an endgame database in every thread (the mapped file is read-only, so it is shared)
+	 */
+	public void setEndgameDatabase(EndgameDatabase endgame) {
+		mainEngine.setEndgameDatabase(endgame);
+		for (SearchEngine helper : helpers)
+			helper.setEndgameDatabase(endgame);
+	}
+
+	/**
+	 * Answers positions found in an opening book with the book move (null to stop using one)
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	/**
+	 * Scores the leaves of every thread with the given evaluator (evaluators keep no state, so it is shared)
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		mainEngine.setEvaluator(evaluator);
+		for (SearchEngine helper : helpers)
+			helper.setEvaluator(evaluator);
+	}
+
+	public int getThreads() {
+		return helpers.length + 1;
+	}
+
+	/**
+	 * Search the current position of a game
+	 */
+	public SearchResult search(Mancala mancala) {
+		root.load(mancala);
+		return search(root);
+	}
+
+	/**
+	 * Search a packed position with all threads
+	 */
+	public SearchResult search(PackedBoard position) {
+		if (book != null) {
+			SearchResult bookMove = book.lookup(position);
+			if (bookMove != null)
+				return bookMove;
+		}
+
+		long start = System.nanoTime();
+		stopSignal.set(false);
+		mainStopSignal.set(false);
+		table.newSearch();
+
+		List<Future<SearchResult>> futures = new ArrayList<>(helpers.length);
+		for (int i = 0; i < helpers.length; i++) {
+			SearchEngine helper = helpers[i];
+			int firstDepth = 1 + (i % 2);
+			futures.add(executor.submit(() -> helper.searchHelper(position, firstDepth)));
+		}
+
+		SearchResult result = mainEngine.searchHelper(position, 1);
+		stopSignal.set(true);
+
+		long nodes = result.getNodes();
+		try {
+			for (Future<SearchResult> future : futures)
+				nodes += future.get().getNodes();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Search helper failed", e.getCause());
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (EngineMetrics.ENABLED)
+			EngineMetrics.searchFinished(elapsed);  // the nodes were counted by the engines
+		return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes, elapsed);
+	}
+
+	/**
+	 * Stops the running search (may be called from any thread)
+	 */
+	public void stop() {
+		mainStopSignal.set(true);
+	}
+
+	/**
+	 * Stops the helper threads for good
+	 */
+	public void shutdown() {
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	/**
+	 * Time to depth from the starting position: ParallelSearch [depth] [max threads] [table MB]
+	 */
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 20;
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int tableMegabytes = (args.length > 2) ? Integer.parseInt(args[2]) : 256;
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ParallelSearch search = new ParallelSearch(threads, tableMegabytes);
+			search.setMaxDepth(depth);
+			SearchResult result = search.search(new PackedBoard());
+			System.out.println(threads + " threads: " + result);
+			search.shutdown();
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * SearchEngine Class
+ *
+ * Purpose: This class implements a computer opponent. It searches Mancala
+ * positions with negamax alpha-beta and iterative deepening, using packed
+ * boards so that every node is a copy of two longs. Rules handled here:
+ * - a free turn keeps the same player on move, so the child score is added
+ *   without flipping its sign or the search window
+ * - moves that end in a free turn or a capture are searched first
+ * - results are kept in a transposition table keyed by the Zobrist hash;
+ *   a stored best move is searched first, and a stored score deep enough
+ *   for the current window ends the node early
+ * - with an endgame database, positions it covers are scored exactly
+ *   (store difference plus the database value) without searching further
+ * - with an opening book, a root position found in the book is answered
+ *   with the book move without searching at all
+ * - leaves are scored by the evaluator (the store difference unless another
+ *   one is set, see Evaluator), in Evaluator.SCALE units per marble; the end
+ *   of the game (remaining marbles counted) and database positions are
+ *   scored exactly. Results are reported in marbles again.
+ * The search stops at the depth limit, at the time limit or when stop() is
+ * called, whichever comes first; a stopped iteration is discarded in favour
+ * of the previous one. An engine owns all of its search state, so several
+ * engines can search in parallel threads (see ParallelSearch). With
+ * metrics switched on, searches, their nodes and their times are counted
+ * (see MancalaGame.metrics.EngineMetrics).
+ *
+ * Methods:
+ * SearchEngine() - constructor of this class
+ * SearchEngine(TranspositionTable) - constructor with a given table (null for none)
+ * setMaxDepth(int) - returns void
+ * setTimeLimitMillis(long) - returns void
+ * stop() - returns void
+ * setEndgameDatabase(EndgameDatabase) - returns void
+ * setOpeningBook(OpeningBook) - returns void
+ * setEvaluator(Evaluator) - returns void
+ * search(Mancala) - returns SearchResult
+ * search(PackedBoard) - returns SearchResult
+ * main(String[]) - SearchEngine [depth] [time limit in ms] [weights file]
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.PackedBoard;
+import MancalaGame.metrics.EngineMetrics;
+
+public class SearchEngine {
+	public static final int MAX_DEPTH = 64;  // deepest iteration supported
+	public static final int DEFAULT_DEPTH = 14;
+
+	private static final int N_HOUSES = Mancala.N_PITS - 1;  // houses per player
+	private static final int INFINITY = 30000;  // larger than any score (and small enough for the table's score field)
+	private static final int MIN_TABLE_DEPTH = 2;  // nodes this close to the leaves are cheaper to search than to look up
+	private static final int TIME_CHECK_MASK = 4095;  // check the clock every 4096 nodes
+
+	private int maxDepth = DEFAULT_DEPTH;
+	private long timeLimitNanos = 0;  // 0 means no time limit
+
+	private final TranspositionTable table;
+	private EndgameDatabase endgame;  // null when no database is used
+	private OpeningBook book;  // null when no book is used
+	private Evaluator evaluator = Evaluator.STORE_DIFFERENCE;
+	private final int[] features = new int[Features.COUNT];  // scratch space of the evaluator
+	private final PackedBoard root = new PackedBoard();
+	private final PackedBoard[][] children;  // children[ply][i] = position after the i-th move at ply
+	private final int[][] moves;  // pit number of each child
+	private final boolean[][] freeTurn;  // whether the child was reached with a free turn
+	private final int[][] order;  // search order of the children (indices into children[ply])
+
+	private AtomicBoolean stopSignal = new AtomicBoolean();  // may be shared with other engines
+	private boolean sharedStopSignal;
+
+	private long nodes;
+	private long deadline;
+	private boolean aborted;
+
+	// constructor
+	public SearchEngine() {
+		this(new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB));
+	}
+
+	// constructor with a given transposition table
+	public SearchEngine(TranspositionTable table) {
+		this.table = table;
+		children = new PackedBoard[MAX_DEPTH + 1][N_HOUSES];
+		moves = new int[MAX_DEPTH + 1][N_HOUSES];
+		freeTurn = new boolean[MAX_DEPTH + 1][N_HOUSES];
+		order = new int[MAX_DEPTH + 1][N_HOUSES];
+		for (int ply = 0; ply <= MAX_DEPTH; ply++)
+			for (int i = 0; i < N_HOUSES; i++)
+				children[ply][i] = new PackedBoard();
+	}
+
+	/**
+	 * Sets the deepest iteration (in plies; a free turn counts as a ply)
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth < 1 || maxDepth > MAX_DEPTH)
+			throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets the time limit per search (0 for no limit)
+	 */
+	public void setTimeLimitMillis(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("Time limit must not be negative");
+		timeLimitNanos = millis * 1_000_000L;
+	}
+
+	/**
+	 * Uses an endgame database for exact scores (null to stop using one)
+	 */
+	public void setEndgameDatabase(EndgameDatabase endgame) {
+		this.endgame = endgame;
+	}
+
+	/**
+	 * Answers positions found in an opening book with the book move (null to stop using one)
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	/**
+	 * Scores the leaves with the given evaluator (null for the store difference)
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		this.evaluator = (evaluator == null) ? Evaluator.STORE_DIFFERENCE : evaluator;
+	}
+
+	/**
+	 * Stops the running search (may be called from any thread)
+	 */
+	public void stop() {
+		stopSignal.set(true);
+	}
+
+	/**
+	 * Makes this engine stop whenever the given signal is set (used by ParallelSearch)
+	 */
+	void setStopSignal(AtomicBoolean signal) {
+		stopSignal = signal;
+		sharedStopSignal = true;
+	}
+
+	/**
+	 * Search the current position of a game
+	 */
+	public SearchResult search(Mancala mancala) {
+		root.load(mancala);
+		return startSearch(1);
+	}
+
+	/**
+	 * Search a packed position
+	 */
+	public SearchResult search(PackedBoard position) {
+		root.copyFrom(position);
+		return startSearch(1);
+	}
+
+	/**
+	 * Search a packed position as a helper of a parallel search: the table is
+	 * shared, so it is not aged, and the first iteration is firstDepth
+	 */
+	SearchResult searchHelper(PackedBoard position, int firstDepth) {
+		root.copyFrom(position);
+		return searchRoot(firstDepth);
+	}
+
+	private SearchResult startSearch(int firstDepth) {
+		if (book != null) {
+			SearchResult bookMove = book.lookup(root);
+			if (bookMove != null)
+				return bookMove;
+		}
+		if (!sharedStopSignal)
+			stopSignal.set(false);
+		if (table != null)
+			table.newSearch();
+		SearchResult result = searchRoot(firstDepth);
+		if (EngineMetrics.ENABLED)
+			EngineMetrics.searchFinished(result.getElapsedNanos());
+		return result;
+	}
+
+	/**
+	 * Iterative deepening over the root moves
+	 */
+	private SearchResult searchRoot(int firstDepth) {
+		long start = System.nanoTime();
+		deadline = start + timeLimitNanos;
+		nodes = 0;
+		aborted = false;
+
+		int count = generate(root, 0);
+		if (count == 0)
+			return new SearchResult(-1, 0, 0, 0, System.nanoTime() - start);
+
+		int bestMove = moves[0][order[0][0]], bestScore = -INFINITY, completedDepth = 0;
+		for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+			int alpha = -INFINITY, iterationMove = -1;
+			for (int i = 0; i < count; i++) {
+				int child = order[0][i];
+				int score = searchChild(0, child, depth, alpha, INFINITY);
+				if (aborted)
+					break;
+				if (score > alpha) {
+					alpha = score;
+					iterationMove = child;
+				}
+			}
+			if (aborted && completedDepth > 0)
+				break;  // keep the result of the last completed iteration
+
+			if (iterationMove >= 0) {  // an aborted first iteration still gives the best move seen, at depth 0
+				bestMove = moves[0][iterationMove];
+				bestScore = alpha;
+				if (!aborted)
+					completedDepth = depth;
+				moveToFront(order[0], iterationMove);  // principal move first in the next iteration
+			}
+			if (aborted)
+				break;
+		}
+
+		if (EngineMetrics.ENABLED)
+			EngineMetrics.nodesSearched(nodes);  // here, so that the helpers of a parallel search are counted too
+		return new SearchResult(bestMove, Math.round(bestScore / (float) Evaluator.SCALE), completedDepth, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Score of a child from the point of view of its parent's player to move
+	 */
+	private int searchChild(int ply, int child, int depth, int alpha, int beta) {
+		PackedBoard board = children[ply][child];
+		if (freeTurn[ply][child])
+			return negamax(board, ply + 1, depth - 1, alpha, beta);  // same player moves again
+		return -negamax(board, ply + 1, depth - 1, -beta, -alpha);
+	}
+
+	/**
+	 * Negamax alpha-beta; returns the score for the player to move on board
+	 */
+	private int negamax(PackedBoard board, int ply, int depth, int alpha, int beta) {
+		if ((++nodes & TIME_CHECK_MASK) == 0
+				&& (stopSignal.get() || (timeLimitNanos > 0 && System.nanoTime() > deadline)))
+			aborted = true;
+		if (aborted)
+			return 0;
+
+		if (board.checkGameOver() != GameStatus.IN_PROGRESS)
+			return storeDifference(board) * Evaluator.SCALE;
+		if (endgame != null && endgame.contains(board))
+			return (storeDifference(board) + endgame.probe(board)) * Evaluator.SCALE;  // exact result
+		if (depth == 0)
+			return evaluator.evaluate(board, features);
+
+		long key = board.getHash();
+		boolean useTable = (table != null && depth >= MIN_TABLE_DEPTH);
+		int ttMove = TranspositionTable.NO_MOVE;
+		if (useTable) {
+			long entry = table.probe(key);
+			if (entry != 0) {
+				ttMove = TranspositionTable.move(entry);
+				if (TranspositionTable.depth(entry) >= depth) {
+					int score = TranspositionTable.score(entry);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+							|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+						return score;
+				}
+			}
+		}
+
+		int count = generate(board, ply);
+		if (ttMove != TranspositionTable.NO_MOVE)
+			for (int i = 0; i < count; i++)
+				if (moves[ply][i] == ttMove)
+					moveToFront(order[ply], i);  // stored best move first
+
+		int originalAlpha = alpha, bestMove = TranspositionTable.NO_MOVE;
+		for (int i = 0; i < count; i++) {
+			int child = order[ply][i];
+			int score = searchChild(ply, child, depth, alpha, beta);
+			if (score > alpha) {
+				alpha = score;
+				bestMove = moves[ply][child];
+				if (alpha >= beta)
+					break;  // cutoff
+			}
+		}
+
+		if (useTable && !aborted) {
+			int bound = (alpha >= beta) ? TranspositionTable.LOWER_BOUND
+					: (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+			table.store(key, depth, bound, alpha, bestMove == TranspositionTable.NO_MOVE ? ttMove : bestMove);
+		}
+		return alpha;
+	}
+
+	/**
+	 * Store difference for the player to move
+	 */
+	private static int storeDifference(PackedBoard board) {
+		int difference = board.getPit(Mancala.STORE1) - board.getPit(Mancala.STORE2);
+		return board.getCurrentPlayer() == 1 ? difference : -difference;
+	}
+
+	/**
+	 * Apply every legal move of board into children[ply] and order them:
+	 * free turns first, then captures, then the rest
+	 */
+	private int generate(PackedBoard board, int ply) {
+		int[] plyOrder = order[ply];
+		int count = 0, freeTurns = 0, captures = 0;
+
+		for (int mask = board.legalMoves(); mask != 0; mask &= mask - 1) {
+			int pitNum = Integer.numberOfTrailingZeros(mask);
+			PackedBoard child = children[ply][count];
+			child.copyFrom(board);
+			MoveResult result = child.applyMove(pitNum);
+			moves[ply][count] = pitNum;
+			freeTurn[ply][count] = (result == MoveResult.FREE_TURN);
+
+			// insert into the order: [free turns][captures][normal moves]
+			if (result == MoveResult.FREE_TURN) {
+				plyOrder[count] = plyOrder[freeTurns + captures];
+				plyOrder[freeTurns + captures] = plyOrder[freeTurns];
+				plyOrder[freeTurns++] = count;
+			} else if (result == MoveResult.CAPTURE) {
+				plyOrder[count] = plyOrder[freeTurns + captures];
+				plyOrder[freeTurns + captures++] = count;
+			} else {
+				plyOrder[count] = count;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Moves an entry of the order to the front, keeping the others in order
+	 */
+	private static void moveToFront(int[] plyOrder, int child) {
+		int i = 0;
+		while (plyOrder[i] != child)
+			i++;
+		for (; i > 0; i--)
+			plyOrder[i] = plyOrder[i - 1];
+		plyOrder[0] = child;
+	}
+
+	/**
+	 * Searches the starting position: SearchEngine [depth] [time limit in ms] [weights file]
+	 * (the weights of LinearEvaluator.DEFAULT_FILE are used if it exists)
+	 */
+	public static void main(String[] args) throws IOException {
+		SearchEngine engine = new SearchEngine();
+		if (args.length > 0)
+			engine.setMaxDepth(Integer.parseInt(args[0]));
+		if (args.length > 1)
+			engine.setTimeLimitMillis(Long.parseLong(args[1]));
+		Path weights = Paths.get(args.length > 2 ? args[2] : LinearEvaluator.DEFAULT_FILE);
+		if (args.length > 2 || Files.exists(weights)) {
+			LinearEvaluator evaluator = LinearEvaluator.load(weights);
+			engine.setEvaluator(evaluator);
+			System.out.println("evaluator " + evaluator);
+		}
+		System.out.println(engine.search(new PackedBoard()));
+	}
+}
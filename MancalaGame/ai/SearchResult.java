@@ -0,0 +1,87 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * SearchResult Class
+ *
+ * Purpose: This class holds the outcome of one search: the best move (as a
+ * pit number of the shadow board), its score from the point of view of the
+ * player to move, the deepest completed iteration and the search statistics.
+ *
+ * Methods:
+ * SearchResult(int, int, int, long, long) - constructor of this class
+ * getBestMove() - returns int
+ * getRow() / getCol() - returns int
+ * getScore() - returns int
+ * getDepth() - returns int
+ * getNodes() - returns long
+ * getElapsedNanos() - returns long
+ * getNodesPerSecond() - returns long
+ * toString() - returns String
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+
+public class SearchResult {
+	private final int bestMove;  // pit number, or -1 if there is no legal move
+	private final int score;  // store difference for the player to move
+	private final int depth;  // deepest completed iteration
+	private final long nodes;
+	private final long elapsedNanos;
+
+	// constructor
+	public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Returns the row of the best move (as used by Mancala.applyMove(int, int))
+	 */
+	public int getRow() {
+		return bestMove < Mancala.STORE2 ? 0 : 1;
+	}
+
+	/**
+	 * Returns the column of the best move (as used by Mancala.applyMove(int, int))
+	 */
+	public int getCol() {
+		return bestMove < Mancala.STORE2 ? bestMove : Mancala.BOARD_SIZE - 1 - bestMove;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the search speed in nodes per second
+	 */
+	public long getNodesPerSecond() {
+		return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("move %d score %d depth %d nodes %d time %.3f ms (%d nodes/s)",
+				bestMove, score, depth, nodes, elapsedNanos / 1e6, getNodesPerSecond());
+	}
+}
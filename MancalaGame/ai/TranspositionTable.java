@@ -0,0 +1,129 @@
+package MancalaGame.ai;
+
+/****************************************************************************
+ * TranspositionTable Class
+ *
+ * Purpose: This class remembers search results by Zobrist hash so positions
+ * reached through different move orders are searched once. Entries live in
+ * one fixed-size long array and no objects are created per entry. Each
+ * bucket holds two entries of two longs (key XOR data, data):
+ * - slot 0 is depth-preferred: it is only replaced by an equal or deeper
+ *   result, or by any result once it is left over from an older search
+ * - slot 1 is always replaced
+ * Storing the key XOR-ed with the data lets a reader detect an entry that
+ * was half written by another thread, so the table can be shared by several
+ * search threads without locking (a torn entry simply misses).
+ *
+ * Data layout (bits): score 0-15 (offset by 32768), depth 16-23, bound
+ * 24-25 (never 0, so an empty slot reads as a miss), move 26-29 (pit number,
+ * 15 = none), generation 30-37.
+ *
+ * Methods:
+ * TranspositionTable(int) - constructor of this class
+ * newSearch() - returns void
+ * clear() - returns void
+ * probe(long) - returns long
+ * store(long, int, int, int, int) - returns void
+ * getSizeMegabytes() - returns int
+ * score(long) / depth(long) / bound(long) / move(long) - decode an entry
+ *
+ ****************************************************************************/
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+	public static final int DEFAULT_SIZE_MB = 16;
+
+	public static final int EXACT = 1, LOWER_BOUND = 2, UPPER_BOUND = 3;  // bound types
+	public static final int NO_MOVE = 15;
+
+	private static final int LONGS_PER_BUCKET = 4;
+	private static final int SCORE_OFFSET = 1 << 15;
+
+	private final long[] table;
+	private final int bucketMask;
+	private final int sizeMegabytes;
+	private int generation;
+
+	// constructor
+	public TranspositionTable(int sizeMegabytes) {
+		if (sizeMegabytes < 1 || sizeMegabytes > 8192)
+			throw new IllegalArgumentException("Table size must be between 1 and 8192 MB");
+		long buckets = Long.highestOneBit(sizeMegabytes * (1L << 20) / (LONGS_PER_BUCKET * Long.BYTES));
+		buckets = Math.min(buckets, Integer.MAX_VALUE / LONGS_PER_BUCKET + 1L);
+		this.sizeMegabytes = sizeMegabytes;
+		bucketMask = (int) (buckets - 1);
+		table = new long[(int) (buckets * LONGS_PER_BUCKET)];
+	}
+
+	/**
+	 * Starts a new search so entries of older searches can be replaced first
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Empties the table
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		generation = 0;
+	}
+
+	public int getSizeMegabytes() {
+		return sizeMegabytes;
+	}
+
+	/**
+	 * Returns the entry data for a position, or 0 if the position is not stored
+	 */
+	public long probe(long key) {
+		int index = ((int) key & bucketMask) * LONGS_PER_BUCKET;
+		long data = table[index + 1];
+		if ((table[index] ^ data) == key && data != 0)
+			return data;
+		data = table[index + 3];
+		if ((table[index + 2] ^ data) == key && data != 0)
+			return data;
+		return 0;
+	}
+
+	/**
+	 * Stores a search result (score for the player to move, bound type, best move as a pit number or NO_MOVE)
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		long data = (score + SCORE_OFFSET) | ((long) depth << 16) | ((long) bound << 24)
+				| ((long) move << 26) | ((long) generation << 30);
+		int index = ((int) key & bucketMask) * LONGS_PER_BUCKET;
+
+		long preferred = table[index + 1];
+		if ((table[index] ^ preferred) == key || depth(preferred) <= depth || generation(preferred) != generation) {
+			table[index + 1] = data;
+			table[index] = key ^ data;
+		} else {
+			table[index + 3] = data;
+			table[index + 2] = key ^ data;
+		}
+	}
+
+	public static int score(long data) {
+		return (int) (data & 0xFFFF) - SCORE_OFFSET;
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> 16) & 0xFF;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> 24) & 0x3;
+	}
+
+	public static int move(long data) {
+		return (int) (data >>> 26) & 0xF;
+	}
+
+	private static int generation(long data) {
+		return (int) (data >>> 30) & 0xFF;
+	}
+}
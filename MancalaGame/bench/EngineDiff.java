@@ -0,0 +1,120 @@
+package MancalaGame.bench;
+
+/****************************************************************************
+ * EngineDiff Class
+ *
+ * Purpose: This class is a differential test of the two rule engines
+ * (MancalaGame.Mancala and the console engine MancalaWithoutGUI.Mancala).
+ * It plays random games through both engines side by side and, after
+ * every move, compares the legal moves (the reference's legalMoves mask
+ * and checkMove too), the move result, the player to move, whether the
+ * game is over and every pit (final scores included).
+ * The first divergence is reported with everything needed to reproduce
+ * it: the game's seed, the moves up to it and both boards. Every game gets
+ * its own seed (the base seed plus the game number), so a single game can
+ * be replayed on its own.
+ *
+ * Methods:
+ * EngineDiff() - constructor of this class
+ * playGame(long) - returns String
+ * main(String[]) - EngineDiff [games] [seed]
+ *
+ ****************************************************************************/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.Mancala.MoveType;
+
+public class EngineDiff {
+	private static final GameStatus[] WINNERS = { GameStatus.TIED_GAME, GameStatus.PLAYER1WON, GameStatus.PLAYER2WON };  // by console getWinner
+
+	private final Mancala reference = new Mancala();
+	private final MancalaWithoutGUI.Mancala console = new MancalaWithoutGUI.Mancala();
+	private final int[] moves = new int[1024];
+	private final int[] legal = new int[Mancala.N_PITS - 1];
+	private long plies;
+
+	/**
+	 * Plays one random game through both engines; returns a description of
+	 * the first divergence, or null if they agreed all the way
+	 */
+	public String playGame(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		reference.reset();
+		console.reset();
+		int numOfMoves = 0;
+		GameStatus status = GameStatus.IN_PROGRESS;
+		while (status == GameStatus.IN_PROGRESS) {
+			// both engines must allow the same moves
+			int count = 0, mask = reference.legalMoves();
+			for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+				boolean valid = (mask >>> pitNum & 1) != 0;
+				if (valid != (reference.checkMove(pitNum) == MoveType.SUCCESS))
+					return divergence(seed, numOfMoves, "legalMoves of pit " + pitNum + " (checkMove " + !valid + ")");
+				if (valid != console.isValidMove(pitNum))
+					return divergence(seed, numOfMoves, "legality of pit " + pitNum + " (reference " + valid + ")");
+				if (valid)
+					legal[count++] = pitNum;
+			}
+			if (count == 0)
+				return divergence(seed, numOfMoves, "no legal move but the game is not over");
+
+			int move = legal[random.nextInt(count)];
+			moves[numOfMoves++] = move;
+			MoveResult result = reference.applyMove(move);
+			MancalaWithoutGUI.Mancala.Outcome outcome = console.play(move);
+			status = reference.checkGameOver();
+			plies++;
+
+			if (!result.name().equals(outcome.name()))
+				return divergence(seed, numOfMoves, "move result " + result + " vs " + outcome);
+			if ((status != GameStatus.IN_PROGRESS) != console.isGameOver())
+				return divergence(seed, numOfMoves, "game over " + status + " vs " + console.isGameOver());
+			if (status == GameStatus.IN_PROGRESS && reference.getPlayer() != console.getCurrentPlayer())
+				return divergence(seed, numOfMoves, "player to move");
+			for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+				if (reference.getPit(pitNum) != console.getPit(pitNum))
+					return divergence(seed, numOfMoves, "pit " + pitNum);
+			if (numOfMoves == moves.length)
+				return divergence(seed, numOfMoves, "game too long");
+		}
+		if (status != WINNERS[console.getWinner()])
+			return divergence(seed, numOfMoves, "winner " + status + " vs " + console.getWinner());
+		return null;
+	}
+
+	private String divergence(long seed, int numOfMoves, String what) {
+		int[] referenceBoard = new int[Mancala.BOARD_SIZE], consoleBoard = new int[Mancala.BOARD_SIZE];
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+			referenceBoard[pitNum] = reference.getPit(pitNum);
+			consoleBoard[pitNum] = console.getPit(pitNum);
+		}
+		return "divergence in game with seed " + seed + " after " + numOfMoves + " moves: " + what
+				+ "\nmoves: " + Arrays.toString(Arrays.copyOf(moves, numOfMoves))
+				+ "\nreference: " + Arrays.toString(referenceBoard) + " player " + reference.getPlayer()
+				+ "\nconsole:   " + Arrays.toString(consoleBoard) + " player " + console.getCurrentPlayer();
+	}
+
+	/**
+	 * EngineDiff [games] [seed]
+	 */
+	public static void main(String[] args) {
+		long games = (args.length > 0) ? Long.parseLong(args[0]) : 1_000_000;
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+		EngineDiff diff = new EngineDiff();
+		long start = System.nanoTime();
+		for (long game = 0; game < games; game++) {
+			String divergence = diff.playGame(seed + game);
+			if (divergence != null) {
+				System.out.println("game " + game + ": " + divergence);
+				System.exit(1);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d games, %d moves: no divergence (%.1f s, %.0f games/s)%n", games, diff.plies, seconds, games / seconds);
+	}
+}
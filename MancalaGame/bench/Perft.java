@@ -0,0 +1,297 @@
+package MancalaGame.bench;
+
+/****************************************************************************
+ * Perft Class
+ *
+ * Purpose: This class counts the leaves of the move tree to a given depth
+ * from any position (like chess "perft"). A ply is one move, so a free turn
+ * is a ply of the same player. A leaf is a position at the given depth or a
+ * position where the game is over (one side's houses are empty) before it;
+ * game-over positions are not expanded. The counts are a correctness oracle
+ * for the rule engines (any change to the move code must keep them) and,
+ * with the time taken, a benchmark of the move code.
+ *
+ * count walks the tree on one game with makeMove/unmakeMove and counts the
+ * last ply in bulk (one leaf per legal move). divide counts the subtree of
+ * every root move in parallel, one task per move, and can also count the
+ * distinct leaves: every task collects the Zobrist hashes of its leaves and
+ * the sets are merged at the end (positions reached by different move
+ * orders are counted once). countConsole counts the same tree with the
+ * console engine (MancalaWithoutGUI.Mancala), which has no undo and copies
+ * the position at every level instead.
+ *
+ * Methods:
+ * Perft(RuleSet, int[], int) - constructor of this class
+ * count(int) - returns long
+ * divide(int, int, boolean) - returns long[]
+ * getDistinct() - returns long
+ * countConsole(int) - returns long
+ * main(String[]) - Perft [-threads N] [-unique] [-console] [-houses N] [-marbles N] [-position b0,b1,...:player] DEPTH
+ *
+ ****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import MancalaGame.Mancala;
+import MancalaGame.RuleSet;
+
+public class Perft {
+	private final RuleSet rules;
+	private final int[] board;
+	private final int player;
+	private long distinct = -1;  // distinct leaves of the last divide, -1 if not counted
+
+	/**
+	 * Open addressing set of Zobrist hashes (0 marks an empty slot and is kept aside)
+	 */
+	private static final class LongHashSet {
+		private long[] slots = new long[1 << 16];
+		private int size;
+		private boolean hasZero;
+
+		void add(long hash) {
+			if (hash == 0) {
+				hasZero = true;
+				return;
+			}
+			int mask = slots.length - 1;
+			int i = (int) (hash ^ (hash >>> 32)) & mask;
+			while (slots[i] != 0) {
+				if (slots[i] == hash)
+					return;
+				i = (i + 1) & mask;
+			}
+			slots[i] = hash;
+			if (++size > slots.length / 2)
+				grow();
+		}
+
+		private void grow() {
+			long[] old = slots;
+			slots = new long[old.length * 2];
+			size = 0;
+			for (long hash : old)
+				if (hash != 0)
+					add(hash);
+		}
+
+		void addAll(LongHashSet other) {
+			for (long hash : other.slots)
+				if (hash != 0)
+					add(hash);
+			hasZero |= other.hasZero;
+		}
+
+		long size() {
+			return size + (hasZero ? 1 : 0);
+		}
+	}
+
+	// constructor
+	public Perft(RuleSet rules, int[] board, int player) {
+		if (board.length != rules.getBoardSize() || (player != 1 && player != 2))
+			throw new IllegalArgumentException("Not a position of these rules");
+		this.rules = rules;
+		this.board = board.clone();
+		this.player = player;
+	}
+
+	/**
+	 * Counts the leaves to the given depth on the calling thread
+	 */
+	public long count(int depth) {
+		Mancala game = newGame();
+		return count(game, depth, new int[Math.max(depth, 1) * Mancala.UNDO_SIZE]);
+	}
+
+	private long count(Mancala game, int depth, int[] undo) {
+		if (depth == 0 || game.isTerminal())
+			return 1;
+		int moves = game.legalMoves();
+		if (depth == 1)  // bulk count: every legal move leads to a leaf
+			return Integer.bitCount(moves);
+		int offset = (depth - 1) * Mancala.UNDO_SIZE;
+		long leaves = 0;
+		for (; moves != 0; moves &= moves - 1) {
+			int pitNum = Integer.numberOfTrailingZeros(moves);
+			game.makeMove(pitNum, undo, offset);
+			leaves += count(game, depth - 1, undo);
+			game.unmakeMove(undo, offset);
+		}
+		return leaves;
+	}
+
+	/**
+	 * Collects the hashes of the leaves and returns their number
+	 */
+	private long collect(Mancala game, int depth, int[] undo, LongHashSet leaves) {
+		if (depth == 0 || game.isTerminal()) {
+			leaves.add(game.getHash());
+			return 1;
+		}
+		int offset = (depth - 1) * Mancala.UNDO_SIZE;
+		long count = 0;
+		for (int mask = game.legalMoves(); mask != 0; mask &= mask - 1) {
+			int pitNum = Integer.numberOfTrailingZeros(mask);
+			game.makeMove(pitNum, undo, offset);
+			count += collect(game, depth - 1, undo, leaves);
+			game.unmakeMove(undo, offset);
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the leaves below every root move in parallel; result[pitNum] is the count
+	 * for that move, -1 for an illegal one (depth must be at least 1)
+	 */
+	public long[] divide(int depth, int threads, boolean unique) throws InterruptedException {
+		if (depth < 1 || threads < 1)
+			throw new IllegalArgumentException("Depth and threads must be at least 1");
+		long[] counts = new long[rules.getBoardSize()];
+		Arrays.fill(counts, -1);
+		distinct = -1;
+		Mancala root = newGame();
+		if (root.isTerminal())
+			return counts;
+
+		List<Future<?>> futures = new ArrayList<>();
+		LongHashSet[] sets = new LongHashSet[counts.length];
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (int mask = root.legalMoves(); mask != 0; mask &= mask - 1) {
+				int move = Integer.numberOfTrailingZeros(mask);
+				futures.add(pool.submit(() -> {
+					Mancala game = newGame();
+					int[] undo = new int[depth * Mancala.UNDO_SIZE];
+					game.makeMove(move, undo, 0);
+					if (unique) {
+						sets[move] = new LongHashSet();
+						counts[move] = collect(game, depth - 1, undo, sets[move]);
+					} else {
+						counts[move] = count(game, depth - 1, undo);
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Perft task failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		if (unique) {
+			LongHashSet all = new LongHashSet();
+			for (LongHashSet set : sets)
+				if (set != null)
+					all.addAll(set);
+			distinct = all.size();
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of distinct leaves counted by the last divide (-1 if not counted)
+	 */
+	public long getDistinct() {
+		return distinct;
+	}
+
+	/**
+	 * Counts the leaves with the console engine (standard rules only)
+	 */
+	public long countConsole(int depth) {
+		if (!rules.equals(RuleSet.STANDARD))
+			throw new IllegalArgumentException("The console engine only plays the standard game");
+		int[][] boards = new int[depth + 1][rules.getBoardSize()];
+		MancalaWithoutGUI.Mancala game = new MancalaWithoutGUI.Mancala();
+		game.load(board, player);
+		return countConsole(game, depth, boards);
+	}
+
+	private long countConsole(MancalaWithoutGUI.Mancala game, int depth, int[][] boards) {
+		if (depth == 0 || game.isGameOver())
+			return 1;
+		int[] saved = boards[depth];
+		for (int i = 0; i < saved.length; i++)
+			saved[i] = game.getPit(i);
+		int savedPlayer = game.getCurrentPlayer();
+		long leaves = 0;
+		for (int pitNum = game.getFirstHouse(); pitNum <= game.getLastHouse(); pitNum++) {
+			if (saved[pitNum] == 0)
+				continue;
+			game.play(pitNum);
+			leaves += countConsole(game, depth - 1, boards);
+			game.load(saved, savedPlayer);
+		}
+		return leaves;
+	}
+
+	private Mancala newGame() {
+		Mancala game = new Mancala(rules);
+		game.load(board, player);
+		return game;
+	}
+
+	/**
+	 * Perft [-threads N] [-unique] [-console] [-houses N] [-marbles N] [-position b0,b1,...:player] DEPTH
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int depth = 8, threads = Runtime.getRuntime().availableProcessors();
+		int houses = Mancala.N_PITS - 1, marbles = Mancala.INIT_MARBLES;
+		boolean unique = false, console = false;
+		String position = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-unique": unique = true; break;
+			case "-console": console = true; break;
+			case "-houses": houses = Integer.parseInt(args[++i]); break;
+			case "-marbles": marbles = Integer.parseInt(args[++i]); break;
+			case "-position": position = args[++i]; break;
+			default: depth = Integer.parseInt(args[i]);
+			}
+		}
+
+		RuleSet rules = (houses == RuleSet.STANDARD.getHousesPerSide() && marbles == RuleSet.STANDARD.getInitMarbles())
+				? RuleSet.STANDARD : new RuleSet(houses, marbles, RuleSet.CaptureRule.OWN_SIDE, true);
+		int[] board;
+		int player = 1;
+		if (position == null) {
+			Mancala start = new Mancala(rules);
+			board = new int[rules.getBoardSize()];
+			for (int pitNum = 0; pitNum < board.length; pitNum++)
+				board[pitNum] = start.getPit(pitNum);
+		} else {
+			String[] parts = position.split(":");
+			board = Arrays.stream(parts[0].split(",")).mapToInt(Integer::parseInt).toArray();
+			if (parts.length > 1)
+				player = Integer.parseInt(parts[1]);
+		}
+		Perft perft = new Perft(rules, board, player);
+
+		long start = System.nanoTime();
+		long leaves;
+		if (console) {
+			leaves = perft.countConsole(depth);
+		} else {
+			long[] counts = perft.divide(depth, threads, unique);
+			leaves = 0;
+			for (int pitNum = 0; pitNum < counts.length; pitNum++) {
+				if (counts[pitNum] >= 0) {
+					System.out.println(pitNum + ": " + counts[pitNum]);
+					leaves += counts[pitNum];
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("depth %d: %d leaves%s in %.3f s (%.0f leaves/s)%n", depth, leaves,
+				perft.getDistinct() >= 0 ? " (" + perft.getDistinct() + " distinct)" : "", seconds, leaves / seconds);
+	}
+}
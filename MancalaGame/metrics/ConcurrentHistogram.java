@@ -0,0 +1,118 @@
+package MancalaGame.metrics;
+
+/****************************************************************************
+ * ConcurrentHistogram Class
+ *
+ * Purpose: This class counts latencies (in nanoseconds) from any number of
+ * threads without locking: bucket k holds the values whose highest set bit
+ * is bit k - 1 (bucket 0 holds 0), so every power of two is one bucket.
+ * Each bucket is a LongAdder, so threads recording at the same time update
+ * different cells instead of fighting over one word. Recording is a leading
+ * zero count and an add. Percentiles are reported as the upper end of their
+ * bucket (at most twice the true value) and reads are not atomic snapshots:
+ * a value recorded during a read may be counted in some sums but not others.
+ * For the single-threaded, finer-grained histogram of the server, see
+ * MancalaGame.server.LatencyHistogram.
+ *
+ * Methods:
+ * record(long) - returns void
+ * reset() - returns void
+ * getCount() - returns long
+ * getTotal() - returns long
+ * getMax() - returns long
+ * getBucketCounts() - returns long[]
+ * percentile(double) - returns long
+ * summary() - returns String
+ *
+ ****************************************************************************/
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentHistogram {
+	public static final int BUCKETS = 64;  // enough for any non-negative long
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	// constructor
+	public ConcurrentHistogram() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets[i] = new LongAdder();
+	}
+
+	/**
+	 * Adds one latency (negative values count as 0)
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets[Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1)].increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	public void reset() {
+		for (LongAdder bucket : buckets)
+			bucket.reset();
+		total.reset();
+		max.reset();
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets)
+			count += bucket.sum();
+		return count;
+	}
+
+	/**
+	 * Returns the sum of all values (for the mean)
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns a copy of the bucket counts (bucket k: values from 2^(k-1) to 2^k - 1)
+	 */
+	public long[] getBucketCounts() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			counts[i] = buckets[i].sum();
+		return counts;
+	}
+
+	/**
+	 * Returns the latency below which the given fraction (0..1) of the values lie
+	 */
+	public long percentile(double fraction) {
+		long[] counts = getBucketCounts();
+		long count = 0;
+		for (long bucketCount : counts)
+			count += bucketCount;
+		long rank = (long) Math.ceil(fraction * count), seen = 0;
+		long largest = getMax();
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min((i == 0) ? 0 : (1L << i) - 1, largest);
+		}
+		return largest;
+	}
+
+	/**
+	 * Count, mean and percentiles in microseconds
+	 */
+	public String summary() {
+		long count = getCount();
+		return String.format("n=%d mean=%.2fus p50=%.2fus p99=%.2fus p99.9=%.2fus max=%.2fus", count,
+				(count == 0) ? 0 : getTotal() / 1e3 / count, percentile(0.5) / 1e3, percentile(0.99) / 1e3,
+				percentile(0.999) / 1e3, getMax() / 1e3);
+	}
+}
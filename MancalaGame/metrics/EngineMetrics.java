@@ -0,0 +1,253 @@
+package MancalaGame.metrics;
+
+/****************************************************************************
+ * EngineMetrics Class
+ *
+ * Purpose: This class counts what the rule engine and the searches do:
+ * moves applied (with captures and free turns), invalid moves rejected,
+ * games finished, searches and the nodes they searched, plus histograms
+ * of the time per move and per search. Counters are LongAdders and the
+ * histograms are ConcurrentHistograms, so any number of game and search
+ * threads can record at once without locking.
+ *
+ * Metrics are off unless the JVM is started with -Dmancala.metrics=true.
+ * ENABLED is a static final field, so in code like
+ *   if (EngineMetrics.ENABLED) EngineMetrics.invalidMove();
+ * the JIT compiler treats the test as a constant and, when metrics are
+ * off, removes the branch: the hot loops cost what they did before.
+ * When metrics are on, the MBean is registered with the platform MBean
+ * server (see OBJECT_NAME, e.g. for jconsole), and with
+ * -Dmancala.metrics.dump=SECONDS a line of text is written to standard
+ * error every SECONDS seconds.
+ *
+ * Methods:
+ * moveApplied(MoveResult, long) - returns void
+ * invalidMove() - returns void
+ * gameFinished() - returns void
+ * searchFinished(long) - returns void
+ * nodesSearched(long) - returns void
+ * getInstance() - returns EngineMetrics
+ * register() - returns void
+ * startDump(long, PrintStream) - returns void
+ * stopDump() - returns void
+ * report() - returns String
+ * (and the EngineMetricsMBean methods)
+ *
+ ****************************************************************************/
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import MancalaGame.Mancala.MoveResult;
+
+public final class EngineMetrics implements EngineMetricsMBean {
+	public static final boolean ENABLED = Boolean.getBoolean("mancala.metrics");
+	public static final String OBJECT_NAME = "MancalaGame:type=EngineMetrics";
+
+	private static final EngineMetrics INSTANCE = new EngineMetrics();
+	private static ScheduledExecutorService dumper;  // null when no dump is running
+
+	private final LongAdder movesApplied = new LongAdder();
+	private final LongAdder captures = new LongAdder();
+	private final LongAdder freeTurns = new LongAdder();
+	private final LongAdder invalidMoves = new LongAdder();
+	private final LongAdder gamesFinished = new LongAdder();
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder nodesSearched = new LongAdder();
+	private final ConcurrentHistogram moveLatency = new ConcurrentHistogram();
+	private final ConcurrentHistogram searchLatency = new ConcurrentHistogram();
+
+	static {
+		if (ENABLED) {
+			register();
+			long seconds = Long.getLong("mancala.metrics.dump", 0);
+			if (seconds > 0)
+				startDump(seconds, System.err);
+		}
+	}
+
+	private EngineMetrics() {
+	}
+
+	/**
+	 * Counts an applied move and the time it took
+	 */
+	public static void moveApplied(MoveResult result, long nanos) {
+		INSTANCE.movesApplied.increment();
+		if (result == MoveResult.CAPTURE)
+			INSTANCE.captures.increment();
+		else if (result == MoveResult.FREE_TURN)
+			INSTANCE.freeTurns.increment();
+		INSTANCE.moveLatency.record(nanos);
+	}
+
+	/**
+	 * Counts a submitted move that was rejected (by the game window, the server or a GameRecorder)
+	 */
+	public static void invalidMove() {
+		INSTANCE.invalidMoves.increment();
+	}
+
+	public static void gameFinished() {
+		INSTANCE.gamesFinished.increment();
+	}
+
+	/**
+	 * Counts a whole search (its nodes are counted by nodesSearched) and the time it took
+	 */
+	public static void searchFinished(long nanos) {
+		INSTANCE.searches.increment();
+		INSTANCE.searchLatency.record(nanos);
+	}
+
+	/**
+	 * Counts the nodes (or playouts) of a search or of one thread of a parallel search
+	 */
+	public static void nodesSearched(long nodes) {
+		INSTANCE.nodesSearched.add(nodes);
+	}
+
+	public static EngineMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the MBean with the platform MBean server (once; a failure is reported, not thrown)
+	 */
+	public static synchronized void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// already registered
+		} catch (JMException e) {
+			System.err.println("Engine metrics MBean not registered: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes a report line with the rates since the last line every period (replaces a running dump)
+	 */
+	public static synchronized void startDump(long periodSeconds, PrintStream out) {
+		if (periodSeconds < 1)
+			throw new IllegalArgumentException("The period must be at least one second");
+		stopDump();
+		dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-dump");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long[] last = new long[2];  // moves and nodes at the last line
+		dumper.scheduleAtFixedRate(() -> {
+			long moves = INSTANCE.getMovesApplied(), nodes = INSTANCE.getNodesSearched();
+			out.printf("metrics: %.0f moves/s, %.0f nodes/s | %s%n", (moves - last[0]) / (double) periodSeconds,
+					(nodes - last[1]) / (double) periodSeconds, report());
+			last[0] = moves;
+			last[1] = nodes;
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	public static synchronized void stopDump() {
+		if (dumper != null) {
+			dumper.shutdownNow();
+			dumper = null;
+		}
+	}
+
+	/**
+	 * All metrics as one line of text
+	 */
+	public static String report() {
+		EngineMetrics m = INSTANCE;
+		return "moves " + m.getMovesApplied() + " (captures " + m.getCaptures() + ", free turns " + m.getFreeTurns()
+				+ "), invalid " + m.getInvalidMoves() + ", games " + m.getGamesFinished() + ", searches " + m.getSearches()
+				+ ", nodes " + m.getNodesSearched() + " | move " + m.moveLatency.summary() + " | search " + m.searchLatency.summary();
+	}
+
+	@Override
+	public long getMovesApplied() {
+		return movesApplied.sum();
+	}
+
+	@Override
+	public long getCaptures() {
+		return captures.sum();
+	}
+
+	@Override
+	public long getFreeTurns() {
+		return freeTurns.sum();
+	}
+
+	@Override
+	public long getInvalidMoves() {
+		return invalidMoves.sum();
+	}
+
+	@Override
+	public long getGamesFinished() {
+		return gamesFinished.sum();
+	}
+
+	@Override
+	public long getSearches() {
+		return searches.sum();
+	}
+
+	@Override
+	public long getNodesSearched() {
+		return nodesSearched.sum();
+	}
+
+	@Override
+	public long getMoveLatencyP50() {
+		return moveLatency.percentile(0.5);
+	}
+
+	@Override
+	public long getMoveLatencyP99() {
+		return moveLatency.percentile(0.99);
+	}
+
+	@Override
+	public long getMoveLatencyMax() {
+		return moveLatency.getMax();
+	}
+
+	@Override
+	public long getSearchLatencyP50() {
+		return searchLatency.percentile(0.5);
+	}
+
+	@Override
+	public long getSearchLatencyP99() {
+		return searchLatency.percentile(0.99);
+	}
+
+	@Override
+	public long getSearchLatencyMax() {
+		return searchLatency.getMax();
+	}
+
+	@Override
+	public String getReport() {
+		return report();
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder counter : new LongAdder[] { movesApplied, captures, freeTurns, invalidMoves, gamesFinished, searches, nodesSearched })
+			counter.reset();
+		moveLatency.reset();
+		searchLatency.reset();
+	}
+}
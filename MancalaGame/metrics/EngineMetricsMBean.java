@@ -0,0 +1,58 @@
+package MancalaGame.metrics;
+
+/****************************************************************************
+ * EngineMetricsMBean Interface
+ *
+ * Purpose: This interface is the JMX view of EngineMetrics (registered as
+ * MancalaGame:type=EngineMetrics): the counters since the start (or the
+ * last reset) and the latency percentiles, in nanoseconds, of single moves
+ * and of whole searches.
+ *
+ * Methods:
+ * getMovesApplied() / getCaptures() / getFreeTurns() - returns long
+ * getInvalidMoves() / getGamesFinished() - returns long
+ * getSearches() / getNodesSearched() - returns long
+ * getMoveLatencyP50() / getMoveLatencyP99() / getMoveLatencyMax() - returns long
+ * getSearchLatencyP50() / getSearchLatencyP99() / getSearchLatencyMax() - returns long
+ * getReport() - returns String
+ * reset() - returns void
+ *
+ ****************************************************************************/
+
+public interface EngineMetricsMBean {
+	long getMovesApplied();
+
+	long getCaptures();
+
+	long getFreeTurns();
+
+	long getInvalidMoves();
+
+	long getGamesFinished();
+
+	long getSearches();
+
+	long getNodesSearched();
+
+	long getMoveLatencyP50();
+
+	long getMoveLatencyP99();
+
+	long getMoveLatencyMax();
+
+	long getSearchLatencyP50();
+
+	long getSearchLatencyP99();
+
+	long getSearchLatencyMax();
+
+	/**
+	 * All metrics as one line of text
+	 */
+	String getReport();
+
+	/**
+	 * Sets every counter and histogram back to zero
+	 */
+	void reset();
+}
@@ -0,0 +1,284 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameArchive Class
+ *
+ * Purpose: This class gives random access to a game record file of any
+ * size. The file is memory-mapped in segments of SEGMENT_SIZE bytes; each
+ * segment is mapped with an overlap of one maximum record, so a record
+ * starting in a segment can always be decoded from that segment alone. The
+ * index file (one long per game: the file offset of its record, written by
+ * GameRecordWriter or built by buildIndex) is mapped the same way, so game
+ * n is found with two lookups and nothing is read into the heap up front.
+ * forEach scans the games in file order without the index.
+ *
+ * Methods:
+ * open(Path) - returns GameArchive
+ * indexPath(Path) - returns Path
+ * buildIndex(Path) - returns long
+ * getCount() - returns long
+ * getOffset(long) - returns long
+ * read(long, GameRecord) - returns void
+ * forEach(GameRecord, Consumer<GameRecord>) - returns long
+ * close() - returns void
+ * main(String[]) - writes random games to an archive, scans it, shows one game or prints
+ *   the games as move scripts (--help lists the modes)
+ *
+ ****************************************************************************/
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.RuleSet;
+import MancalaGame.sim.RandomPolicy;
+
+public class GameArchive implements Closeable {
+	static final long SEGMENT_SIZE = 1L << 30;  // a multiple of Long.BYTES, so index entries never straddle segments
+
+	private final FileChannel channel;
+	private final FileChannel indexChannel;
+	private final MappedByteBuffer[] segments;
+	private final MappedByteBuffer[] indexSegments;
+	private final long size;
+	private final long count;
+
+	private GameArchive(FileChannel channel, FileChannel indexChannel) throws IOException {
+		this.channel = channel;
+		this.indexChannel = indexChannel;
+		size = channel.size();
+		segments = map(channel, size, GameRecord.MAX_ENCODED_SIZE);
+		if (size < GameRecord.FILE_HEADER_SIZE || segments[0].getInt(0) != GameRecord.DATA_MAGIC)
+			throw new IOException("Not a game record file");
+		if (segments[0].getInt(4) != GameRecord.VERSION)
+			throw new IOException("Unsupported game record version");
+
+		long indexSize = indexChannel.size();
+		indexSegments = map(indexChannel, indexSize, 0);
+		if (indexSize < GameRecord.FILE_HEADER_SIZE || indexSegments[0].getInt(0) != GameRecord.INDEX_MAGIC
+				|| (indexSize - GameRecord.FILE_HEADER_SIZE) % Long.BYTES != 0)
+			throw new IOException("Not a game record index");
+		count = (indexSize - GameRecord.FILE_HEADER_SIZE) / Long.BYTES;
+	}
+
+	/**
+	 * Maps a file in segments, each extended by overlap bytes where the file allows
+	 */
+	private static MappedByteBuffer[] map(FileChannel channel, long size, int overlap) throws IOException {
+		int n = (int) Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+		MappedByteBuffer[] mapped = new MappedByteBuffer[n];
+		for (int i = 0; i < n; i++) {
+			long start = i * SEGMENT_SIZE;
+			mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + overlap, size - start));
+		}
+		return mapped;
+	}
+
+	/**
+	 * Maps a record file and its index (built first if it does not exist yet)
+	 */
+	public static GameArchive open(Path path) throws IOException {
+		Path index = indexPath(path);
+		if (!Files.exists(index))
+			buildIndex(path);
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+			try {
+				return new GameArchive(channel, indexChannel);
+			} catch (IOException | RuntimeException e) {
+				indexChannel.close();
+				throw e;
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the index file of a record file
+	 */
+	public static Path indexPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".idx");
+	}
+
+	/**
+	 * Writes the index of a record file by reading it once; returns the number of games
+	 */
+	public static long buildIndex(Path path) throws IOException {
+		try (FileChannel index = FileChannel.open(indexPath(path), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				GameRecordReader reader = GameRecordReader.open(path)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+			buffer.putInt(GameRecord.INDEX_MAGIC).putInt(GameRecord.VERSION);
+			GameRecord record = new GameRecord();
+			long offset = GameRecord.FILE_HEADER_SIZE, games = 0;
+			while (reader.next(record)) {
+				if (!buffer.hasRemaining()) {
+					buffer.flip();
+					while (buffer.hasRemaining())
+						index.write(buffer);
+					buffer.clear();
+				}
+				buffer.putLong(offset);
+				offset += record.getEncodedSize();
+				games++;
+			}
+			buffer.flip();
+			while (buffer.hasRemaining())
+				index.write(buffer);
+			return games;
+		}
+	}
+
+	/**
+	 * Returns the number of games in the archive
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the file offset of a game's record
+	 */
+	public long getOffset(long game) {
+		if (game < 0 || game >= count)
+			throw new IndexOutOfBoundsException("No game " + game + " in an archive of " + count);
+		long position = GameRecord.FILE_HEADER_SIZE + game * Long.BYTES;
+		return indexSegments[(int) (position / SEGMENT_SIZE)].getLong((int) (position % SEGMENT_SIZE));
+	}
+
+	/**
+	 * Decodes a game into the record
+	 */
+	public void read(long game, GameRecord record) {
+		long offset = getOffset(game);
+		record.decode(segments[(int) (offset / SEGMENT_SIZE)], (int) (offset % SEGMENT_SIZE));
+	}
+
+	/**
+	 * Decodes every game in file order into the record and passes it on; returns the number of games
+	 */
+	public long forEach(GameRecord record, Consumer<GameRecord> action) {
+		long offset = GameRecord.FILE_HEADER_SIZE, games = 0;
+		while (offset < size) {
+			offset += record.decode(segments[(int) (offset / SEGMENT_SIZE)], (int) (offset % SEGMENT_SIZE));
+			action.accept(record);
+			games++;
+		}
+		return games;
+	}
+
+	/**
+	 * Closes the files (the mappings stay valid until they are garbage collected)
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			channel.close();
+		} finally {
+			indexChannel.close();
+		}
+	}
+
+	private static final String USAGE = "GameArchive write [file] [games] [seed] | scan [file] | show [file] [game] [ply]"
+			+ " | script [file] | --help\n(the file defaults to games.rec; script prints the standard games as console move scripts)";
+
+	/**
+	 * GameArchive write [file] [games] [seed] | scan [file] | show [file] [game] [ply] | script [file] | --help
+	 */
+	public static void main(String[] args) throws IOException {
+		String mode = (args.length > 0) ? args[0] : "scan";
+		if (mode.equals("--help") || mode.equals("-h")) {
+			System.out.println(USAGE);
+			return;
+		}
+		if (!Arrays.asList("write", "scan", "show", "script").contains(mode)) {
+			System.err.println("Unknown mode " + mode + "\n" + USAGE);
+			System.exit(1);
+		}
+		Path path = Paths.get(args.length > 1 ? args[1] : "games.rec");
+
+		if (mode.equals("write")) {
+			long games = (args.length > 2) ? Long.parseLong(args[2]) : 1_000_000;
+			SplittableRandom random = new SplittableRandom((args.length > 3) ? Long.parseLong(args[3]) : 1);
+			long start = System.nanoTime();
+			try (GameRecordWriter writer = GameRecordWriter.create(path)) {
+				GameRecorder recorder = new GameRecorder(new Mancala());
+				RandomPolicy policy = new RandomPolicy();
+				for (long g = 0; g < games; g++) {
+					recorder.reset();
+					while (recorder.checkGameOver() == GameStatus.IN_PROGRESS)
+						recorder.applyMove(policy.selectMove(recorder.getGame(), random));
+					writer.write(recorder.getRecord());
+				}
+			}
+			System.out.printf("%d games written to %s (%d bytes) in %.1f s%n",
+					games, path, Files.size(path), (System.nanoTime() - start) / 1e9);
+		} else if (mode.equals("show")) {
+			long game = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+			try (GameArchive archive = open(path)) {
+				GameRecord record = new GameRecord();
+				archive.read(game, record);
+				GameReplayer replayer = new GameReplayer(record);
+				replayer.seek((args.length > 3) ? Integer.parseInt(args[3]) : record.getNumOfMoves());
+				System.out.println("game " + game + ": " + record.getStatus() + " " + record.getScore(1) + "-" + record.getScore(2)
+						+ ", " + record.getNumOfMoves() + " moves, " + record.getRuleSet());
+				System.out.println("ply " + replayer.getPly() + ": " + Arrays.toString(replayer.getBoard(null)));
+			}
+		} else if (mode.equals("script")) {
+			// the moves of every standard game as console pit numbers, one game per line (see MancalaWithoutGUI.MoveScriptReader)
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+			Mancala mancala = new Mancala();
+			StringBuilder line = new StringBuilder();
+			try (GameArchive archive = open(path)) {
+				archive.forEach(new GameRecord(), record -> {
+					if (!record.getRuleSet().equals(RuleSet.STANDARD))
+						return;
+					mancala.reset();
+					line.setLength(0);
+					for (int ply = 0; ply < record.getNumOfMoves(); ply++) {
+						int pitNum = RuleSet.STANDARD.getFirstHouse(mancala.getPlayer()) + record.getMove(ply);
+						mancala.applyMove(pitNum);
+						line.append(ply == 0 ? "" : " ").append(pitNum);
+					}
+					try {
+						out.append(line).append('\n');
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			out.flush();
+		} else {
+			long start = System.nanoTime();
+			long[] results = new long[GameStatus.values().length];
+			try (GameArchive archive = open(path)) {
+				long games = archive.forEach(new GameRecord(), record -> results[record.getStatus().ordinal()]++);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.printf("%d games (%d indexed) in %.2f s: %.0f games/s, %.0f MB/s%n", games, archive.getCount(),
+						seconds, games / seconds, archive.size / seconds / 1e6);
+			}
+			for (GameStatus status : GameStatus.values())
+				System.out.println(status + ": " + results[status.ordinal()]);
+		}
+	}
+}
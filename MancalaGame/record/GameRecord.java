@@ -0,0 +1,200 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameRecord Class
+ *
+ * Purpose: This class holds one recorded game: the rule set it was played
+ * by, its result, the final scores and every move. A move is stored as the
+ * index of the house it was played from, counted from the mover's first
+ * house (0 .. houses per side - 1), so it fits in 4 bits; whose move it was
+ * follows from replaying the game, since every game starts with player 1.
+ *
+ * Encoded layout (big-endian, HEADER_SIZE + (moves + 1) / 2 bytes):
+ * houses per side (byte), starting marbles (byte), rule flags (byte: capture
+ * rule in bits 0-1, store skipping in bit 2), result (byte: GameStatus
+ * ordinal), player 1's score (short), player 2's score (short), number of
+ * moves (unsigned short), then two moves per byte, the earlier one in the
+ * low 4 bits. Record files start with a FILE_HEADER_SIZE header of their own
+ * (magic number and version).
+ *
+ * A record is reused from game to game (reset, decode), so reading or
+ * writing any number of games allocates nothing once the move array has
+ * grown to the longest game.
+ *
+ * Methods:
+ * GameRecord() - constructor of this class
+ * GameRecord(RuleSet) - constructor for games played by the given rules
+ * reset(RuleSet) - returns void
+ * addMove(int) - returns void
+ * setResult(GameStatus, int, int) - returns void
+ * getRuleSet() - returns RuleSet
+ * getStatus() - returns GameStatus
+ * getScore(int) - returns int
+ * getNumOfMoves() - returns int
+ * getMove(int) - returns int
+ * getEncodedSize() - returns int
+ * encode(ByteBuffer) - returns void
+ * decode(ByteBuffer, int) - returns int
+ *
+ ****************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.RuleSet;
+import MancalaGame.RuleSet.CaptureRule;
+
+public class GameRecord {
+	static final int DATA_MAGIC = 0x4D475244;  // "MGRD"
+	static final int INDEX_MAGIC = 0x4D475249;  // "MGRI"
+	static final int VERSION = 1;
+	static final int FILE_HEADER_SIZE = 8;  // magic and version
+
+	public static final int HEADER_SIZE = 10;
+	public static final int MAX_MOVES = 0xFFFF;
+	public static final int MAX_ENCODED_SIZE = HEADER_SIZE + (MAX_MOVES + 1) / 2;
+
+	private static final int SKIP_FLAG = 4;
+	private static final CaptureRule[] CAPTURE_RULES = CaptureRule.values();
+	private static final GameStatus[] STATUSES = GameStatus.values();
+
+	private RuleSet rules;
+	private GameStatus status;
+	private int score1, score2;
+	private byte[] moves = new byte[128];  // one house index per move
+	private int numOfMoves;
+
+	// constructor
+	public GameRecord() {
+		this(RuleSet.STANDARD);
+	}
+
+	// constructor for games played by the given rules
+	public GameRecord(RuleSet rules) {
+		reset(rules);
+	}
+
+	/**
+	 * Clears the record for a new game
+	 */
+	public void reset(RuleSet rules) {
+		this.rules = rules;
+		status = GameStatus.IN_PROGRESS;
+		score1 = score2 = 0;
+		numOfMoves = 0;
+	}
+
+	/**
+	 * Appends a move (house index counted from the mover's first house)
+	 */
+	public void addMove(int house) {
+		if (house < 0 || house >= rules.getHousesPerSide())
+			throw new IllegalArgumentException("House index out of range: " + house);
+		if (numOfMoves == MAX_MOVES)
+			throw new IllegalStateException("A record holds at most " + MAX_MOVES + " moves");
+		if (numOfMoves == moves.length)
+			moves = Arrays.copyOf(moves, Math.min(moves.length * 2, MAX_MOVES));
+		moves[numOfMoves++] = (byte) house;
+	}
+
+	/**
+	 * Sets the result and the final scores
+	 */
+	public void setResult(GameStatus status, int score1, int score2) {
+		this.status = status;
+		this.score1 = score1;
+		this.score2 = score2;
+	}
+
+	public RuleSet getRuleSet() {
+		return rules;
+	}
+
+	public GameStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns a player's final score
+	 */
+	public int getScore(int player) {
+		return (player == 1) ? score1 : score2;
+	}
+
+	public int getNumOfMoves() {
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns the house index of the move at the given ply
+	 */
+	public int getMove(int ply) {
+		if (ply < 0 || ply >= numOfMoves)
+			throw new IndexOutOfBoundsException("No move at ply " + ply);
+		return moves[ply];
+	}
+
+	/**
+	 * Returns the number of bytes encode writes
+	 */
+	public int getEncodedSize() {
+		return HEADER_SIZE + (numOfMoves + 1) / 2;
+	}
+
+	/**
+	 * Writes the record at the buffer's position (getEncodedSize bytes must remain)
+	 */
+	public void encode(ByteBuffer buffer) {
+		buffer.put((byte) rules.getHousesPerSide());
+		buffer.put((byte) rules.getInitMarbles());
+		buffer.put((byte) (rules.getCaptureRule().ordinal() | (rules.isSkipOpponentStore() ? SKIP_FLAG : 0)));
+		buffer.put((byte) status.ordinal());
+		buffer.putShort((short) score1);
+		buffer.putShort((short) score2);
+		buffer.putChar((char) numOfMoves);
+		for (int ply = 0; ply < numOfMoves; ply += 2) {
+			int high = (ply + 1 < numOfMoves) ? moves[ply + 1] : 0;
+			buffer.put((byte) (moves[ply] | (high << 4)));
+		}
+	}
+
+	/**
+	 * Reads a record starting at the given buffer index (the position is not
+	 * used or changed) and returns its encoded size
+	 */
+	public int decode(ByteBuffer buffer, int index) {
+		int houses = buffer.get(index) & 0xFF;
+		int marbles = buffer.get(index + 1) & 0xFF;
+		int flags = buffer.get(index + 2);
+		int statusOrdinal = buffer.get(index + 3);
+		if ((flags & 3) >= CAPTURE_RULES.length || statusOrdinal < 0 || statusOrdinal >= STATUSES.length)
+			throw new IllegalArgumentException("Corrupt game record at " + index);
+		CaptureRule captureRule = CAPTURE_RULES[flags & 3];
+		boolean skip = (flags & SKIP_FLAG) != 0;
+
+		// most archives hold a single rule set, so the previous one can nearly always be kept
+		if (houses != rules.getHousesPerSide() || marbles != rules.getInitMarbles()
+				|| captureRule != rules.getCaptureRule() || skip != rules.isSkipOpponentStore()) {
+			if (houses == RuleSet.STANDARD.getHousesPerSide() && marbles == RuleSet.STANDARD.getInitMarbles()
+					&& captureRule == RuleSet.STANDARD.getCaptureRule() && skip == RuleSet.STANDARD.isSkipOpponentStore())
+				rules = RuleSet.STANDARD;
+			else
+				rules = new RuleSet(houses, marbles, captureRule, skip);
+		}
+		status = STATUSES[statusOrdinal];
+		score1 = buffer.getShort(index + 4);
+		score2 = buffer.getShort(index + 6);
+		numOfMoves = buffer.getChar(index + 8);
+
+		if (moves.length < numOfMoves + 1)
+			moves = new byte[numOfMoves + 1];
+		int packed = index + HEADER_SIZE;
+		for (int ply = 0; ply < numOfMoves; ply += 2) {
+			int pair = buffer.get(packed++);
+			moves[ply] = (byte) (pair & 0xF);
+			moves[ply + 1] = (byte) ((pair >>> 4) & 0xF);
+		}
+		return getEncodedSize();
+	}
+}
@@ -0,0 +1,90 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameRecordReader Class
+ *
+ * Purpose: This class reads game records one after the other from a
+ * channel (a file, a socket, a decompressing stream ...). Data is read in
+ * large blocks into a direct buffer and decoded into a record supplied by
+ * the caller, so a whole file can be read without allocating anything per
+ * game. For random access to a file, see GameArchive.
+ *
+ * Methods:
+ * GameRecordReader(ReadableByteChannel) - constructor of this class
+ * open(Path) - returns GameRecordReader
+ * next(GameRecord) - returns boolean
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameRecordReader implements Closeable {
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+	private boolean endOfStream;
+
+	// constructor (reads and checks the file header)
+	public GameRecordReader(ReadableByteChannel channel) throws IOException {
+		this.channel = channel;
+		buffer.flip();  // empty, ready for reading
+		if (!fill(GameRecord.FILE_HEADER_SIZE) || buffer.getInt() != GameRecord.DATA_MAGIC)
+			throw new IOException("Not a game record file");
+		if (buffer.getInt() != GameRecord.VERSION)
+			throw new IOException("Unsupported game record version");
+	}
+
+	/**
+	 * Opens a record file
+	 */
+	public static GameRecordReader open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new GameRecordReader(channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next game into the record; false at the end of the file
+	 */
+	public boolean next(GameRecord record) throws IOException {
+		if (!fill(GameRecord.HEADER_SIZE)) {
+			if (buffer.hasRemaining())
+				throw new EOFException("Truncated game record");
+			return false;
+		}
+		int numOfMoves = buffer.getChar(buffer.position() + GameRecord.HEADER_SIZE - 2);
+		if (!fill(GameRecord.HEADER_SIZE + (numOfMoves + 1) / 2))
+			throw new EOFException("Truncated game record");
+		buffer.position(buffer.position() + record.decode(buffer, buffer.position()));
+		return true;
+	}
+
+	/**
+	 * Reads until at least the given number of bytes are buffered; false if the channel ends first
+	 */
+	private boolean fill(int needed) throws IOException {
+		if (buffer.remaining() >= needed)
+			return true;
+		buffer.compact();
+		while (buffer.position() < needed && !endOfStream)
+			endOfStream = (channel.read(buffer) < 0);
+		buffer.flip();
+		return buffer.remaining() >= needed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
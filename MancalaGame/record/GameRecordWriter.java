@@ -0,0 +1,132 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameRecordWriter Class
+ *
+ * Purpose: This class appends game records to a channel. Records are
+ * collected in a direct buffer and written in large blocks. Optionally the
+ * file offset of every record is written to a second channel as well (one
+ * long per game), which GameArchive uses to find any game without reading
+ * the ones before it. Writes are synchronized, so several threads (see
+ * SelfPlaySimulator) can share one writer.
+ *
+ * Methods:
+ * GameRecordWriter(WritableByteChannel) - constructor of this class
+ * GameRecordWriter(WritableByteChannel, WritableByteChannel) - constructor with an index channel
+ * create(Path) - returns GameRecordWriter
+ * write(GameRecord) - returns void
+ * getCount() - returns long
+ * flush() - returns void
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameRecordWriter implements Closeable {
+	static final int BUFFER_SIZE = 1 << 20;  // larger than any record
+
+	private final WritableByteChannel channel;
+	private final WritableByteChannel indexChannel;  // null if no index is written
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final ByteBuffer indexBuffer;
+	private long offset = GameRecord.FILE_HEADER_SIZE;  // file offset of the next record
+	private long count;
+
+	// constructor
+	public GameRecordWriter(WritableByteChannel channel) throws IOException {
+		this(channel, null);
+	}
+
+	// constructor with an index channel
+	public GameRecordWriter(WritableByteChannel channel, WritableByteChannel indexChannel) throws IOException {
+		this.channel = channel;
+		this.indexChannel = indexChannel;
+		buffer.putInt(GameRecord.DATA_MAGIC).putInt(GameRecord.VERSION);
+		if (indexChannel == null) {
+			indexBuffer = null;
+		} else {
+			indexBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			indexBuffer.putInt(GameRecord.INDEX_MAGIC).putInt(GameRecord.VERSION);
+		}
+	}
+
+	/**
+	 * Creates (or replaces) a record file and its index (same name plus ".idx")
+	 */
+	public static GameRecordWriter create(Path path) throws IOException {
+		FileChannel data = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			FileChannel index = FileChannel.open(GameArchive.indexPath(path), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			return new GameRecordWriter(data, index);
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends a record
+	 */
+	public synchronized void write(GameRecord record) throws IOException {
+		if (buffer.remaining() < record.getEncodedSize())
+			drain(channel, buffer);
+		record.encode(buffer);
+
+		if (indexBuffer != null) {
+			if (indexBuffer.remaining() < Long.BYTES)
+				drain(indexChannel, indexBuffer);
+			indexBuffer.putLong(offset);
+		}
+		offset += record.getEncodedSize();
+		count++;
+	}
+
+	/**
+	 * Returns the number of records written
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes out everything buffered so far
+	 */
+	public synchronized void flush() throws IOException {
+		drain(channel, buffer);
+		if (indexBuffer != null)
+			drain(indexChannel, indexBuffer);
+	}
+
+	private static void drain(WritableByteChannel target, ByteBuffer source) throws IOException {
+		source.flip();
+		while (source.hasRemaining())
+			target.write(source);
+		source.clear();
+	}
+
+	/**
+	 * Flushes and closes the channels
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			try {
+				channel.close();
+			} finally {
+				if (indexChannel != null)
+					indexChannel.close();
+			}
+		}
+	}
+}
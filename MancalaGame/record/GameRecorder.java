@@ -0,0 +1,80 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameRecorder Class
+ *
+ * Purpose: This class records a game while it is played. Moves are applied
+ * through the recorder instead of directly to the game, and when
+ * checkGameOver reports the end of the game the result and final scores
+ * are added, so the record is ready to be written (see GameRecordWriter).
+ *
+ * Methods:
+ * GameRecorder(Mancala) - constructor of this class
+ * reset() - returns void
+ * applyMove(int) - returns MoveResult
+ * checkGameOver() - returns GameStatus
+ * getGame() - returns Mancala
+ * getRecord() - returns GameRecord
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.Mancala.MoveType;
+import MancalaGame.RuleSet;
+import MancalaGame.metrics.EngineMetrics;
+
+public class GameRecorder {
+	private final Mancala game;
+	private final GameRecord record;
+
+	// constructor (starts a new game)
+	public GameRecorder(Mancala game) {
+		this.game = game;
+		record = new GameRecord(game.getRuleSet());
+		reset();
+	}
+
+	/**
+	 * Starts a new game and an empty record
+	 */
+	public void reset() {
+		game.reset();
+		record.reset(game.getRuleSet());
+	}
+
+	/**
+	 * Records a legal move and applies it to the game
+	 */
+	public MoveResult applyMove(int pitNum) {
+		if (game.checkMove(pitNum) != MoveType.SUCCESS) {
+			if (EngineMetrics.ENABLED)
+				EngineMetrics.invalidMove();
+			throw new IllegalArgumentException("Illegal move: " + pitNum);
+		}
+		RuleSet rules = game.getRuleSet();
+		record.addMove(pitNum - rules.getFirstHouse(game.getPlayer()));
+		return game.applyMove(pitNum);
+	}
+
+	/**
+	 * Checks the game state and records the result once the game is over
+	 */
+	public GameStatus checkGameOver() {
+		GameStatus status = game.checkGameOver();
+		if (status != GameStatus.IN_PROGRESS) {
+			RuleSet rules = game.getRuleSet();
+			record.setResult(status, game.getPit(rules.getStore(1)), game.getPit(rules.getStore(2)));
+		}
+		return status;
+	}
+
+	public Mancala getGame() {
+		return game;
+	}
+
+	public GameRecord getRecord() {
+		return record;
+	}
+}
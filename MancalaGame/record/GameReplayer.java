@@ -0,0 +1,97 @@
+package MancalaGame.record;
+
+/****************************************************************************
+ * GameReplayer Class
+ *
+ * Purpose: This class rebuilds the position of a recorded game at any ply.
+ * It keeps one game and an undo record per move (see Mancala.makeMove), so
+ * going forward plays the next moves and going back takes moves back, and
+ * stepping through a game one ply at a time costs one move per step. The
+ * houses are not swept into the stores at the last ply; the final scores
+ * are in the record itself.
+ *
+ * Methods:
+ * GameReplayer(GameRecord) - constructor of this class
+ * getRecord() - returns GameRecord
+ * getPly() - returns int
+ * seek(int) - returns void
+ * getPit(int) - returns int
+ * getBoard(int[]) - returns int[]
+ * getGame() - returns Mancala
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.MoveType;
+import MancalaGame.RuleSet;
+
+public class GameReplayer {
+	private final GameRecord record;
+	private final Mancala game;
+	private final int[] undo;
+	private int ply;
+
+	// constructor (starts at ply 0, the starting position)
+	public GameReplayer(GameRecord record) {
+		this.record = record;
+		game = new Mancala(record.getRuleSet());
+		undo = new int[record.getNumOfMoves() * Mancala.UNDO_SIZE];
+	}
+
+	public GameRecord getRecord() {
+		return record;
+	}
+
+	/**
+	 * Returns the number of moves played so far
+	 */
+	public int getPly() {
+		return ply;
+	}
+
+	/**
+	 * Moves to the position after the given number of moves (0 .. number of moves)
+	 */
+	public void seek(int target) {
+		if (target < 0 || target > record.getNumOfMoves())
+			throw new IndexOutOfBoundsException("No ply " + target + " in a game of " + record.getNumOfMoves() + " moves");
+		RuleSet rules = record.getRuleSet();
+		while (ply < target) {
+			int pitNum = rules.getFirstHouse(game.getPlayer()) + record.getMove(ply);
+			if (game.checkMove(pitNum) != MoveType.SUCCESS)
+				throw new IllegalStateException("Illegal move in the record at ply " + ply);
+			game.makeMove(pitNum, undo, ply * Mancala.UNDO_SIZE);
+			ply++;
+		}
+		while (ply > target) {
+			ply--;
+			game.unmakeMove(undo, ply * Mancala.UNDO_SIZE);
+		}
+	}
+
+	/**
+	 * Returns the number of marbles in a pit at the current ply
+	 */
+	public int getPit(int pitNum) {
+		return game.getPit(pitNum);
+	}
+
+	/**
+	 * Copies the shadow board at the current ply into board (allocated if null) and returns it
+	 */
+	public int[] getBoard(int[] board) {
+		int boardSize = record.getRuleSet().getBoardSize();
+		if (board == null)
+			board = new int[boardSize];
+		for (int pitNum = 0; pitNum < boardSize; pitNum++)
+			board[pitNum] = game.getPit(pitNum);
+		return board;
+	}
+
+	/**
+	 * Returns the game at the current ply (to be read, not changed)
+	 */
+	public Mancala getGame() {
+		return game;
+	}
+}
@@ -0,0 +1,110 @@
+package MancalaGame.server;
+
+/****************************************************************************
+ * LatencyHistogram Class
+ *
+ * Purpose: This class counts latencies (in nanoseconds) in buckets of
+ * roughly 12% width: below 8 ns every value has its own bucket, above that
+ * every power of two is split into 8 equal buckets. Recording is an index
+ * computation and an array increment, so it can be done for every request;
+ * percentiles are reported as the upper end of their bucket. An instance
+ * is meant to be used by one thread; histograms of several threads are
+ * combined with merge.
+ *
+ * Methods:
+ * record(long) - returns void
+ * merge(LatencyHistogram) - returns void
+ * reset() - returns void
+ * getCount() - returns long
+ * getMax() - returns long
+ * percentile(double) - returns long
+ * summary() - returns String
+ *
+ ****************************************************************************/
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+	private static final int SUB_BITS = 3;  // 2^SUB_BITS buckets per power of two
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts = new long[64 << SUB_BITS];
+	private long count;
+	private long max;
+
+	/**
+	 * Adds one latency
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts[bucket(nanos)]++;
+		count++;
+		if (nanos > max)
+			max = nanos;
+	}
+
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);  // at least SUB_BITS
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/**
+	 * Largest value that falls into a bucket
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+		int sub = bucket & (SUB_BUCKETS - 1);
+		return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * Adds the counts of another histogram
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+		count += other.count;
+		max = Math.max(max, other.max);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = max = 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the latency below which the given fraction (0..1) of the values lie
+	 */
+	public long percentile(double fraction) {
+		long rank = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0)
+				return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * Count and percentiles in microseconds
+	 */
+	public String summary() {
+		return String.format("n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count,
+				percentile(0.5) / 1e3, percentile(0.99) / 1e3, percentile(0.999) / 1e3, max / 1e3);
+	}
+}
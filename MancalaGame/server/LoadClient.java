@@ -0,0 +1,325 @@
+package MancalaGame.server;
+
+/****************************************************************************
+ * LoadClient Class
+ *
+ * Purpose: This class puts load on a MancalaServer. It opens a number of
+ * connections, keeps a number of games open on each of them and plays
+ * random legal moves in all of them, one request in flight per connection,
+ * going round the connection's games. A finished game is replaced by a new
+ * one, so the number of open sessions stays the same for the whole run.
+ * All connections are driven by one selector thread, and the round-trip
+ * time of every request is recorded. At the end the open games are
+ * resigned, and the request rate, the client-side latencies and the
+ * server's own statistics are printed.
+ *
+ * In pipelined mode the client instead sends a burst of requests on one
+ * connection without waiting for any response, and checks that every
+ * request is answered.
+ *
+ * Methods:
+ * LoadClient(String, int, int, int, long) - constructor of this class
+ * run() - returns void
+ * runPipelined(int) - returns void
+ * main(String[]) - runs a load test against a server
+ *
+ ****************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+public class LoadClient {
+	private static final int BUFFER_SIZE = 16 * 1024;
+	private static final int PIPELINE_TIMEOUT_MILLIS = 3000;  // longest wait for the next pipelined response
+
+	private final String host;
+	private final int port;
+	private final int connections;
+	private final int sessionsPerConnection;
+	private final long durationNanos;
+	private final SplittableRandom random = new SplittableRandom(1);
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * one connection and the games it plays
+	 */
+	private final class Connection {
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+		final int[] ids = new int[sessionsPerConnection];  // 0 while a game still has to be created
+		final int[][] boards = new int[sessionsPerConnection][];
+		final int[] players = new int[sessionsPerConnection];
+		int current;  // game of the request in flight
+		long sentAt;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Sends the next request: a new game where one is missing, otherwise a random move
+		 */
+		void sendNext() throws IOException {
+			current = (current + 1) % sessionsPerConnection;
+			String request;
+			if (ids[current] == 0) {
+				request = "NEW\n";
+			} else {
+				int[] board = boards[current];
+				int houses = board.length / 2 - 1;
+				int firstPit = (players[current] == 1) ? 1 : houses + 2;
+				int count = 0, move = -1;
+				for (int pitNum = firstPit; pitNum < firstPit + houses; pitNum++)
+					if (board[pitNum] > 0 && random.nextInt(++count) == 0)  // reservoir sampling
+						move = pitNum;
+				request = "MOVE " + ids[current] + " " + move + "\n";
+			}
+			out.clear();
+			out.put(request.getBytes(StandardCharsets.US_ASCII));
+			out.flip();
+			sentAt = System.nanoTime();
+			while (out.hasRemaining())
+				channel.write(out);
+		}
+
+		/**
+		 * Reads the response if it is complete; returns whether it was
+		 */
+		boolean receive() throws IOException {
+			if (channel.read(in) < 0)
+				throw new IOException("Server closed the connection");
+			int newline = -1;
+			for (int i = 0; i < in.position(); i++) {
+				if (in.get(i) == '\n') {
+					newline = i;
+					break;
+				}
+			}
+			if (newline < 0)
+				return false;
+			latency.record(System.nanoTime() - sentAt);
+
+			String[] fields = new String(in.array(), 0, newline, StandardCharsets.US_ASCII).split(" ");
+			in.flip();
+			in.position(newline + 1);
+			in.compact();
+			if (!fields[0].equals("OK"))
+				throw new IOException("Request failed: " + String.join(" ", fields));
+
+			// NEW: OK id status player pits..., MOVE: OK result status player pits...
+			if (ids[current] == 0)
+				ids[current] = Integer.parseInt(fields[1]);
+			if (!fields[2].equals("IN_PROGRESS")) {
+				ids[current] = 0;  // the server has dropped the finished game
+				return true;
+			}
+			players[current] = Integer.parseInt(fields[3]);
+			int[] board = new int[fields.length - 4];
+			for (int i = 0; i < board.length; i++)
+				board[i] = Integer.parseInt(fields[4 + i]);
+			boards[current] = board;
+			return true;
+		}
+
+		/**
+		 * Resigns every open game and closes the connection (the channel must be in blocking mode)
+		 */
+		void resignAll() throws IOException {
+			while (!receive())  // the request still in flight may create a game
+				;
+			int expected = 0;
+			out.clear();
+			for (int id : ids) {
+				if (id != 0) {
+					out.put(("RESIGN " + id + "\n").getBytes(StandardCharsets.US_ASCII));
+					expected++;
+				}
+			}
+			out.flip();
+			while (out.hasRemaining())
+				channel.write(out);
+
+			int received = 0;
+			for (int i = 0; i < in.position(); i++)
+				if (in.get(i) == '\n')
+					received++;
+			while (received < expected) {
+				in.clear();
+				if (channel.read(in) < 0)
+					break;
+				for (int i = 0; i < in.position(); i++)
+					if (in.get(i) == '\n')
+						received++;
+			}
+			channel.close();
+		}
+	}
+
+	// constructor
+	public LoadClient(String host, int port, int connections, int sessionsPerConnection, long durationMillis) {
+		if (connections < 1 || sessionsPerConnection < 1)
+			throw new IllegalArgumentException("At least one connection and one session are needed");
+		this.host = host;
+		this.port = port;
+		this.connections = connections;
+		this.sessionsPerConnection = sessionsPerConnection;
+		durationNanos = durationMillis * 1_000_000L;
+	}
+
+	/**
+	 * Runs the load test and prints the results
+	 */
+	public void run() throws IOException {
+		Connection[] open = new Connection[connections];
+		double seconds;
+		try (Selector selector = Selector.open()) {
+			for (int i = 0; i < connections; i++) {
+				SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+				channel.socket().setTcpNoDelay(true);
+				channel.configureBlocking(false);
+				open[i] = new Connection(channel);
+				channel.register(selector, SelectionKey.OP_READ, open[i]);
+				open[i].sendNext();
+			}
+
+			long start = System.nanoTime();
+			long end = start + durationNanos;
+			while (System.nanoTime() < end) {
+				selector.select(100);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					Connection connection = (Connection) keys.next().attachment();
+					keys.remove();
+					if (connection.receive())
+						connection.sendNext();
+				}
+			}
+			seconds = (System.nanoTime() - start) / 1e9;
+		}
+
+		System.out.printf("%d connections x %d sessions: %d requests in %.1f s (%.0f requests/s)%n",
+				connections, sessionsPerConnection, latency.getCount(), seconds, latency.getCount() / seconds);
+		System.out.println("round trip: " + latency.summary());
+		for (Connection connection : open) {
+			connection.channel.configureBlocking(true);  // allowed now that the selector is closed
+			connection.resignAll();
+		}
+		System.out.println("server: " + serverStats());
+	}
+
+	/**
+	 * Sends the given number of STATE requests for one new game in a single burst
+	 * and checks that every one of them is answered
+	 */
+	public void runPipelined(int requests) throws IOException {
+		if (requests < 1)
+			throw new IllegalArgumentException("At least one request is needed");
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(PIPELINE_TIMEOUT_MILLIS);
+			InputStream input = new BufferedInputStream(socket.getInputStream());
+			OutputStream output = socket.getOutputStream();
+			output.write("NEW\n".getBytes(StandardCharsets.US_ASCII));
+			String response = readLine(input);
+			if (response == null || !response.startsWith("OK "))
+				throw new IOException("Request failed: " + response);
+			String id = response.split(" ")[1];
+
+			// written by another thread, so that a burst larger than the socket buffers cannot deadlock
+			byte[] burst = ("STATE " + id + "\n").repeat(requests).getBytes(StandardCharsets.US_ASCII);
+			Thread writer = new Thread(() -> {
+				try {
+					output.write(burst);
+				} catch (IOException e) {
+					// shows up as missing responses
+				}
+			}, "pipeline-writer");
+			writer.setDaemon(true);
+			long start = System.nanoTime();
+			writer.start();
+
+			int received = 0;
+			try {
+				while (received < requests && (response = readLine(input)) != null) {
+					if (!response.startsWith("OK "))
+						throw new IOException("Request failed: " + response);
+					received++;
+				}
+			} catch (SocketTimeoutException e) {
+				// reported below
+			}
+			if (received < requests)
+				throw new IOException("Pipelined requests: " + received + " of " + requests + " answered");
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("pipelined: %d of %d requests answered in %.3f s (%.0f requests/s)%n",
+					received, requests, seconds, received / seconds);
+
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			output.write(("RESIGN " + id + "\nQUIT\n").getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	/**
+	 * Reads one response line without its newline, or returns null at the end of the stream
+	 */
+	private static String readLine(InputStream input) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int c = input.read(); c != '\n'; c = input.read()) {
+			if (c < 0)
+				return null;
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Asks the server for its statistics over a new connection
+	 */
+	private String serverStats() throws IOException {
+		try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+			channel.write(ByteBuffer.wrap("STATS\nQUIT\n".getBytes(StandardCharsets.US_ASCII)));
+			ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+			while (channel.read(in) >= 0) {
+				String text = new String(in.array(), 0, in.position(), StandardCharsets.US_ASCII);
+				int newline = text.indexOf('\n');
+				if (newline >= 0)
+					return text.substring(0, newline);
+			}
+			return "no answer";
+		}
+	}
+
+	/**
+	 * LoadClient [host] [port] [connections] [sessions per connection] [seconds] [pipelined requests]
+	 * (with a number of pipelined requests, only the pipelined check is run)
+	 */
+	public static void main(String[] args) throws IOException {
+		String host = (args.length > 0) ? args[0] : "localhost";
+		int port = (args.length > 1) ? Integer.parseInt(args[1]) : MancalaServer.DEFAULT_PORT;
+		int connections = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+		int sessions = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+		long seconds = (args.length > 4) ? Long.parseLong(args[4]) : 10;
+		LoadClient client = new LoadClient(host, port, connections, sessions, seconds * 1000);
+		if (args.length > 5)
+			client.runPipelined(Integer.parseInt(args[5]));
+		else
+			client.run();
+	}
+}
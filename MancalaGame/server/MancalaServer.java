@@ -0,0 +1,443 @@
+package MancalaGame.server;
+
+/****************************************************************************
+ * MancalaServer Class
+ *
+ * Purpose: This class hosts any number of independent games over TCP. One
+ * thread serves every connection with a NIO selector, so the cost of a
+ * connection is two buffers and the cost of a game is one Mancala object.
+ * Requests are lines of ASCII text; every request gets exactly one response
+ * line, in order, and requests may be pipelined. Any connection may play
+ * any game, so the two players of a game may use different connections,
+ * but a game belongs to the connection that created it and is dropped when
+ * that connection closes, so clients that go away leave nothing behind.
+ *
+ * Requests and responses (STATE = status, player to move, then every pit
+ * of the shadow board):
+ * NEW [houses marbles]  ->  OK id STATE
+ * MOVE id pit           ->  OK NORMAL|CAPTURE|FREE_TURN STATE
+ * STATE id              ->  OK STATE
+ * RESIGN id             ->  OK status  (the player to move resigns)
+ * STATS                 ->  OK sessions requests latency summary
+ * QUIT                  ->  closes the connection
+ * Errors are answered with ERR and a reason. A game is dropped as soon as
+ * the move that ends it has been answered.
+ *
+ * Requests are parsed and answered straight from and into the connection's
+ * byte buffers, and the time from parsing a request to having its response
+ * in the output buffer is recorded in a LatencyHistogram, which is printed
+ * every REPORT_SECONDS while requests are coming in.
+ *
+ * Methods:
+ * MancalaServer(int) - constructor of this class
+ * getPort() - returns int
+ * run() - returns void
+ * stop() - returns void
+ * main(String[]) - runs a server on the given port
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.Mancala.MoveType;
+import MancalaGame.RuleSet;
+import MancalaGame.metrics.EngineMetrics;
+
+public class MancalaServer {
+	public static final int DEFAULT_PORT = 7070;
+
+	private static final int BUFFER_SIZE = 16 * 1024;  // per connection and direction
+	private static final int MAX_RESPONSE = 256;  // longest response line
+	private static final int REPORT_SECONDS = 10;
+	private static final int MISSING = Integer.MIN_VALUE;  // nextInt found no number
+
+	private static final byte[] NEW = ascii("NEW"), MOVE = ascii("MOVE"), STATE = ascii("STATE"),
+			RESIGN = ascii("RESIGN"), STATS = ascii("STATS"), QUIT = ascii("QUIT");
+	private static final byte[] OK = ascii("OK"), ERR = ascii("ERR");
+	private static final byte[][] RESULT_NAMES = names(MoveResult.values());
+	private static final byte[][] STATUS_NAMES = names(GameStatus.values());
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final Map<Integer, Session> games = new HashMap<>();
+	private int nextId = 1;
+	private volatile boolean running = true;
+
+	private final LatencyHistogram latency = new LatencyHistogram();  // since the start
+	private final LatencyHistogram recentLatency = new LatencyHistogram();  // since the last report
+	private long requests;
+
+	// the request line being parsed
+	private ByteBuffer line;
+	private int cursor, lineEnd;
+
+	/**
+	 * buffers of one client connection
+	 */
+	private static final class Connection {
+		final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		boolean closing;  // QUIT received: close once the output is written
+		final Set<Integer> owned = new HashSet<>();  // ids of the open games this connection created
+	}
+
+	/**
+	 * an open game and the connection that created it
+	 */
+	private static final class Session {
+		final Mancala game;
+		final Connection owner;
+
+		Session(Mancala game, Connection owner) {
+			this.game = game;
+			this.owner = owner;
+		}
+	}
+
+	// constructor (port 0 picks a free port)
+	public MancalaServer(int port) throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port), 1024);
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Serves connections until stop() is called
+	 */
+	public void run() throws IOException {
+		long nextReport = System.nanoTime() + REPORT_SECONDS * 1_000_000_000L;
+		try {
+			while (running) {
+				selector.select(1000);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (key.isAcceptable())
+							accept();
+						else
+							serve(key);
+					} catch (IOException e) {
+						close(key);
+					}
+				}
+
+				if (System.nanoTime() >= nextReport) {
+					if (recentLatency.getCount() > 0)
+						System.out.println(games.size() + " sessions, " + recentLatency.summary());
+					recentLatency.reset();
+					nextReport = System.nanoTime() + REPORT_SECONDS * 1_000_000_000L;
+				}
+			}
+		} finally {
+			for (SelectionKey key : selector.keys())
+				key.channel().close();
+			selector.close();
+		}
+	}
+
+	/**
+	 * Stops the server (may be called from any thread)
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.register(selector, SelectionKey.OP_READ, new Connection());
+		}
+	}
+
+	/**
+	 * Closes a connection and drops the games it created
+	 */
+	private void close(SelectionKey key) {
+		Connection connection = (Connection) key.attachment();
+		if (connection != null) {
+			for (int id : connection.owned)
+				games.remove(id);
+			connection.owned.clear();
+		}
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// the connection is gone either way
+		}
+	}
+
+	/**
+	 * Reads what has arrived, answers every complete line and writes the responses
+	 */
+	private void serve(SelectionKey key) throws IOException {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Connection connection = (Connection) key.attachment();
+
+		if (key.isReadable() && channel.read(connection.in) < 0) {
+			close(key);
+			return;
+		}
+		boolean waiting = process(connection);
+		ByteBuffer out = connection.out;
+		while (true) {
+			out.flip();
+			channel.write(out);
+			out.compact();
+			// pipelined lines left over for lack of output room are answered as soon as the write makes room
+			if (!waiting || out.remaining() < MAX_RESPONSE)
+				break;
+			waiting = process(connection);
+		}
+
+		boolean pending = out.position() > 0;
+		if (connection.closing && !pending) {
+			close(key);
+			return;
+		}
+		if (!connection.closing && !waiting && connection.in.position() == BUFFER_SIZE) {  // a line longer than the buffer
+			close(key);
+			return;
+		}
+		// while responses are waiting to be written, stop reading more requests
+		key.interestOps(pending ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Answers the complete lines in the input buffer (as far as the output buffer
+	 * has room) and returns whether complete lines are left for lack of room
+	 */
+	private boolean process(Connection connection) {
+		ByteBuffer in = connection.in;
+		in.flip();
+		boolean waiting = false;
+		while (!connection.closing) {
+			int newline = -1;
+			for (int i = in.position(); i < in.limit(); i++) {
+				if (in.get(i) == '\n') {
+					newline = i;
+					break;
+				}
+			}
+			if (newline < 0)
+				break;
+			if (connection.out.remaining() < MAX_RESPONSE) {
+				waiting = true;
+				break;
+			}
+
+			long start = System.nanoTime();
+			int end = (newline > in.position() && in.get(newline - 1) == '\r') ? newline - 1 : newline;
+			execute(connection, in, in.position(), end);
+			in.position(newline + 1);
+			long elapsed = System.nanoTime() - start;
+			latency.record(elapsed);
+			recentLatency.record(elapsed);
+			requests++;
+		}
+		in.compact();
+		return waiting;
+	}
+
+	/**
+	 * Answers one request line
+	 */
+	private void execute(Connection connection, ByteBuffer in, int start, int end) {
+		ByteBuffer out = connection.out;
+		line = in;
+		cursor = start;
+		lineEnd = end;
+
+		if (nextWord(NEW)) {
+			int houses = nextInt(), marbles = nextInt();
+			RuleSet rules = RuleSet.STANDARD;
+			if (houses != MISSING) {
+				try {
+					rules = new RuleSet(houses, (marbles == MISSING) ? Mancala.INIT_MARBLES : marbles, RuleSet.CaptureRule.OWN_SIDE, true);
+				} catch (IllegalArgumentException e) {
+					error(out, "invalid rules");
+					return;
+				}
+			}
+			int id = nextId++;
+			Mancala game = new Mancala(rules);
+			games.put(id, new Session(game, connection));
+			connection.owned.add(id);
+			out.put(OK).put((byte) ' ');
+			putInt(out, id);
+			putState(out, game, GameStatus.IN_PROGRESS);
+		} else if (nextWord(MOVE)) {
+			int id = nextInt(), pitNum = nextInt();
+			Session session = games.get(id);
+			Mancala game = (session == null) ? null : session.game;
+			if (game == null) {
+				error(out, "no such game");
+			} else if (pitNum == MISSING) {
+				error(out, "missing pit");
+			} else {
+				MoveType check = game.checkMove(pitNum);
+				if (check != MoveType.SUCCESS) {
+					if (EngineMetrics.ENABLED)
+						EngineMetrics.invalidMove();
+					error(out, check.name());
+					return;
+				}
+				MoveResult result = game.applyMove(pitNum);
+				GameStatus status = game.checkGameOver();
+				if (status != GameStatus.IN_PROGRESS)
+					drop(id);
+				out.put(OK).put((byte) ' ').put(RESULT_NAMES[result.ordinal()]);
+				putState(out, game, status);
+			}
+		} else if (nextWord(STATE)) {
+			Session session = games.get(nextInt());
+			if (session == null) {
+				error(out, "no such game");
+			} else {
+				out.put(OK);
+				putState(out, session.game, GameStatus.IN_PROGRESS);
+			}
+		} else if (nextWord(RESIGN)) {
+			Mancala game = drop(nextInt());
+			if (game == null) {
+				error(out, "no such game");
+			} else {
+				GameStatus status = (game.getPlayer() == 1) ? GameStatus.PLAYER2WON : GameStatus.PLAYER1WON;
+				out.put(OK).put((byte) ' ').put(STATUS_NAMES[status.ordinal()]).put((byte) '\n');
+			}
+		} else if (nextWord(STATS)) {
+			out.put(ascii("OK " + games.size() + " sessions " + requests + " requests " + latency.summary() + "\n"));
+		} else if (nextWord(QUIT)) {
+			connection.closing = true;
+		} else {
+			error(out, "unknown request");
+		}
+	}
+
+	/**
+	 * Removes a game from the server and from its owner; returns it, or null if there is no such game
+	 */
+	private Mancala drop(int id) {
+		Session session = games.remove(id);
+		if (session == null)
+			return null;
+		session.owner.owned.remove(id);
+		return session.game;
+	}
+
+	/**
+	 * Writes " status player pits..." and the end of the line
+	 */
+	private static void putState(ByteBuffer out, Mancala game, GameStatus status) {
+		out.put((byte) ' ').put(STATUS_NAMES[status.ordinal()]).put((byte) ' ');
+		putInt(out, game.getPlayer());
+		int boardSize = game.getRuleSet().getBoardSize();
+		for (int pitNum = 0; pitNum < boardSize; pitNum++) {
+			out.put((byte) ' ');
+			putInt(out, game.getPit(pitNum));
+		}
+		out.put((byte) '\n');
+	}
+
+	private static void error(ByteBuffer out, String reason) {
+		out.put(ERR).put((byte) ' ').put(ascii(reason)).put((byte) '\n');
+	}
+
+	/**
+	 * Writes a non-negative number in decimal
+	 */
+	private static void putInt(ByteBuffer out, int value) {
+		int digits = 1;
+		for (int rest = value / 10; rest > 0; rest /= 10)
+			digits++;
+		int position = out.position();
+		for (int i = digits - 1; i >= 0; i--) {
+			out.put(position + i, (byte) ('0' + value % 10));
+			value /= 10;
+		}
+		out.position(position + digits);
+	}
+
+	private void skipSpaces() {
+		while (cursor < lineEnd && line.get(cursor) == ' ')
+			cursor++;
+	}
+
+	/**
+	 * Consumes the next word if it is the given one
+	 */
+	private boolean nextWord(byte[] word) {
+		skipSpaces();
+		int end = cursor + word.length;
+		if (end > lineEnd || (end < lineEnd && line.get(end) != ' '))
+			return false;
+		for (int i = 0; i < word.length; i++)
+			if (line.get(cursor + i) != word[i])
+				return false;
+		cursor = end;
+		return true;
+	}
+
+	/**
+	 * Consumes the next non-negative number, or returns MISSING
+	 */
+	private int nextInt() {
+		skipSpaces();
+		int value = 0, digits = 0;
+		while (cursor < lineEnd && digits < 9) {
+			int c = line.get(cursor) - '0';
+			if (c < 0 || c > 9)
+				break;
+			value = value * 10 + c;
+			digits++;
+			cursor++;
+		}
+		return (digits == 0) ? MISSING : value;
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[][] names(Enum<?>[] values) {
+		byte[][] names = new byte[values.length][];
+		for (Enum<?> value : values)
+			names[value.ordinal()] = ascii(value.name());
+		return names;
+	}
+
+	/**
+	 * MancalaServer [port]
+	 */
+	public static void main(String[] args) throws IOException {
+		MancalaServer server = new MancalaServer((args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+		System.out.println("Mancala server listening on port " + server.getPort());
+		server.run();
+	}
+}
@@ -0,0 +1,48 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * GreedyPolicy Class
+ *
+ * Purpose: This class plays the move that puts the most marbles into the
+ * player's store right away (captures included). Among equal moves one that
+ * ends in a free turn is preferred, and remaining ties are broken randomly.
+ *
+ * Methods:
+ * selectMove(Mancala, SplittableRandom) - returns int
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.MoveResult;
+import MancalaGame.PackedBoard;
+
+public class GreedyPolicy implements MovePolicy {
+	private final PackedBoard position = new PackedBoard();
+	private final PackedBoard scratch = new PackedBoard();
+
+	@Override
+	public int selectMove(Mancala game, SplittableRandom random) {
+		position.load(game);
+		int player = game.getPlayer();
+		int store = (player == 1) ? Mancala.STORE1 : Mancala.STORE2;
+
+		int bestMove = -1, bestScore = Integer.MIN_VALUE, ties = 0;
+		for (int mask = position.legalMoves(); mask != 0; mask &= mask - 1) {
+			int pitNum = Integer.numberOfTrailingZeros(mask);
+			scratch.copyFrom(position);
+			MoveResult result = scratch.applyMove(pitNum);
+			int score = 2 * (scratch.getPit(store) - position.getPit(store)) + (result == MoveResult.FREE_TURN ? 1 : 0);
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = pitNum;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				bestMove = pitNum;  // reservoir sampling among equal moves
+			}
+		}
+		return bestMove;
+	}
+}
@@ -0,0 +1,35 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * MctsPolicy Class
+ *
+ * Purpose: This class plays the best move of a Monte Carlo Tree Search with
+ * a fixed number of playouts (see MctsEngine). The rollouts are seeded from
+ * the simulator's random generator, so games stay reproducible.
+ *
+ * Methods:
+ * MctsPolicy(long, int) - constructor of this class
+ * selectMove(Mancala, SplittableRandom) - returns int
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+import MancalaGame.ai.MctsEngine;
+
+public class MctsPolicy implements MovePolicy {
+	private final MctsEngine engine;
+
+	// constructor
+	public MctsPolicy(long playouts, int maxNodes) {
+		engine = new MctsEngine(maxNodes);
+		engine.setMaxPlayouts(playouts);
+	}
+
+	@Override
+	public int selectMove(Mancala game, SplittableRandom random) {
+		engine.setSeed(random.nextLong());
+		return engine.search(game).getBestMove();
+	}
+}
@@ -0,0 +1,25 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * MovePolicy Interface
+ *
+ * Purpose: This interface chooses the moves of one player in a simulated
+ * game. A policy may keep scratch state, so every simulation thread gets its
+ * own instances; all randomness must come from the given generator so that
+ * runs with the same seed play the same games.
+ *
+ * Methods:
+ * selectMove(Mancala, SplittableRandom) - returns int (pit number of a legal move)
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+
+public interface MovePolicy {
+	/**
+	 * Returns the pit number of a legal move for the current player
+	 */
+	int selectMove(Mancala game, SplittableRandom random);
+}
@@ -0,0 +1,25 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * RandomPolicy Class
+ *
+ * Purpose: This class plays a uniformly random legal move (under any rule set).
+ *
+ * Methods:
+ * selectMove(Mancala, SplittableRandom) - returns int
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+
+public class RandomPolicy implements MovePolicy {
+	@Override
+	public int selectMove(Mancala game, SplittableRandom random) {
+		int mask = game.legalMoves();
+		for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;  // drop the lowest moves until the chosen one is the lowest
+		return Integer.numberOfTrailingZeros(mask);
+	}
+}
@@ -0,0 +1,43 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * SearchPolicy Class
+ *
+ * Purpose: This class plays the best move of a fixed-depth alpha-beta search
+ * (see SearchEngine). Each instance owns its engine and transposition table;
+ * the evaluator (null for the store difference) may be shared.
+ *
+ * Methods:
+ * SearchPolicy(int, int) - constructor of this class
+ * SearchPolicy(int, int, Evaluator) - constructor with an evaluator
+ * selectMove(Mancala, SplittableRandom) - returns int
+ *
+ ****************************************************************************/
+
+import java.util.SplittableRandom;
+
+import MancalaGame.Mancala;
+import MancalaGame.ai.Evaluator;
+import MancalaGame.ai.SearchEngine;
+import MancalaGame.ai.TranspositionTable;
+
+public class SearchPolicy implements MovePolicy {
+	private final SearchEngine engine;
+
+	// constructor
+	public SearchPolicy(int depth, int tableMegabytes) {
+		this(depth, tableMegabytes, null);
+	}
+
+	// constructor with an evaluator
+	public SearchPolicy(int depth, int tableMegabytes, Evaluator evaluator) {
+		engine = new SearchEngine(new TranspositionTable(tableMegabytes));
+		engine.setMaxDepth(depth);
+		engine.setEvaluator(evaluator);
+	}
+
+	@Override
+	public int selectMove(Mancala game, SplittableRandom random) {
+		return engine.search(game).getBestMove();
+	}
+}
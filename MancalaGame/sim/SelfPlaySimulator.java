@@ -0,0 +1,196 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * SelfPlaySimulator Class
+ *
+ * Purpose: This class plays many games between two move policies without any
+ * output per move. The games are split over a fixed thread pool: thread t
+ * plays games t, t + T, t + 2T, ... with its own Mancala instance, its own
+ * policy instances and its own random generator seeded from the run seed and
+ * t, so a run with the same seed and thread count plays the same games.
+ *
+ * Methods:
+ * SelfPlaySimulator(int) - constructor of this class
+ * setRuleSet(RuleSet) - returns void
+ * setRecordWriter(GameRecordWriter) - returns void
+ * run(long, long, Supplier<MovePolicy>, Supplier<MovePolicy>) - returns SimulationStats
+ * getLastElapsedNanos() - returns long
+ * createPolicy(String) - returns Supplier<MovePolicy>
+ * main(String[]) - runs a simulation and prints the statistics (and the
+ *   metrics when -Dmancala.metrics=true)
+ *
+ ****************************************************************************/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.RuleSet;
+import MancalaGame.ai.Evaluator;
+import MancalaGame.ai.LinearEvaluator;
+import MancalaGame.metrics.EngineMetrics;
+import MancalaGame.record.GameRecordWriter;
+import MancalaGame.record.GameRecorder;
+
+public class SelfPlaySimulator {
+	private final int threads;
+	private RuleSet rules = RuleSet.STANDARD;
+	private GameRecordWriter recordWriter;  // null when games are not recorded
+	private long lastElapsedNanos;
+
+	// constructor
+	public SelfPlaySimulator(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed");
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the rules of the simulated games (only the random policy handles other rules than the standard ones)
+	 */
+	public void setRuleSet(RuleSet rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Records every game played to the writer (null to stop recording)
+	 */
+	public void setRecordWriter(GameRecordWriter recordWriter) {
+		this.recordWriter = recordWriter;
+	}
+
+	/**
+	 * Plays the given number of games and returns the merged statistics
+	 */
+	public SimulationStats run(long games, long seed, Supplier<MovePolicy> player1, Supplier<MovePolicy> player2) {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<SimulationStats>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int worker = t;
+				futures.add(executor.submit(() -> play(worker, games, seed, player1.get(), player2.get())));
+			}
+
+			SimulationStats total = new SimulationStats();
+			for (Future<SimulationStats> future : futures)
+				total.merge(future.get());
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Simulation failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			lastElapsedNanos = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Wall-clock time of the last run
+	 */
+	public long getLastElapsedNanos() {
+		return lastElapsedNanos;
+	}
+
+	/**
+	 * Plays this worker's share of the games
+	 */
+	private SimulationStats play(int worker, long games, long seed, MovePolicy player1, MovePolicy player2) {
+		SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + worker);
+		Mancala game = new Mancala(rules);
+		GameRecorder recorder = (recordWriter == null) ? null : new GameRecorder(game);
+		SimulationStats stats = new SimulationStats();
+
+		for (long g = worker; g < games; g += threads) {
+			if (recorder != null)
+				recorder.reset();
+			else
+				game.reset();
+			int numOfMoves = 0;
+			GameStatus status;
+			do {
+				MovePolicy policy = (game.getPlayer() == 1) ? player1 : player2;
+				int move = policy.selectMove(game, random);
+				if (recorder != null)
+					recorder.applyMove(move);
+				else
+					game.applyMove(move);
+				numOfMoves++;
+				status = (recorder != null) ? recorder.checkGameOver() : game.checkGameOver();
+			} while (status == GameStatus.IN_PROGRESS);
+
+			if (recorder != null) {
+				try {
+					recordWriter.write(recorder.getRecord());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			stats.addGame(status, game.getPit(rules.getStore(1)), game.getPit(rules.getStore(2)), numOfMoves);
+		}
+		return stats;
+	}
+
+	/**
+	 * Policy by name: random, greedy, search:DEPTH, search:DEPTH:WEIGHTS FILE or mcts:PLAYOUTS
+	 */
+	public static Supplier<MovePolicy> createPolicy(String name) throws IOException {
+		if (name.equals("random"))
+			return RandomPolicy::new;
+		if (name.equals("greedy"))
+			return GreedyPolicy::new;
+		if (name.startsWith("search:")) {
+			String[] parts = name.split(":", 3);
+			int depth = Integer.parseInt(parts[1]);
+			Evaluator evaluator = (parts.length > 2) ? LinearEvaluator.load(Paths.get(parts[2])) : null;  // loaded once, shared by the threads
+			return () -> new SearchPolicy(depth, 4, evaluator);
+		}
+		if (name.startsWith("mcts:")) {
+			long playouts = Long.parseLong(name.substring("mcts:".length()));
+			return () -> new MctsPolicy(playouts, 1 << 16);
+		}
+		throw new IllegalArgumentException("Unknown policy: " + name);
+	}
+
+	/**
+	 * SelfPlaySimulator [games] [threads] [seed] [player 1 policy] [player 2 policy] [houses] [marbles] [record file]
+	 */
+	public static void main(String[] args) throws IOException {
+		long games = (args.length > 0) ? Long.parseLong(args[0]) : 1_000_000;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+		String policy1 = (args.length > 3) ? args[3] : "random";
+		String policy2 = (args.length > 4) ? args[4] : "random";
+
+		SelfPlaySimulator simulator = new SelfPlaySimulator(threads);
+		if (args.length > 5)
+			simulator.setRuleSet(new RuleSet(Integer.parseInt(args[5]),
+					(args.length > 6) ? Integer.parseInt(args[6]) : Mancala.INIT_MARBLES, RuleSet.CaptureRule.OWN_SIDE, true));
+		GameRecordWriter writer = (args.length > 7) ? GameRecordWriter.create(Paths.get(args[7])) : null;
+		simulator.setRecordWriter(writer);
+		SimulationStats stats;
+		try {
+			stats = simulator.run(games, seed, createPolicy(policy1), createPolicy(policy2));
+		} finally {
+			if (writer != null)
+				writer.close();
+		}
+		System.out.println(policy1 + " vs " + policy2 + ", " + threads + " threads, seed " + seed + ", " + simulator.rules);
+		System.out.println(stats.report(simulator.getLastElapsedNanos()));
+		if (EngineMetrics.ENABLED)
+			System.out.println("metrics: " + EngineMetrics.report());
+	}
+}
@@ -0,0 +1,105 @@
+package MancalaGame.sim;
+
+/****************************************************************************
+ * SimulationStats Class
+ *
+ * Purpose: This class counts the outcomes of simulated games. Every worker
+ * thread fills its own instance, and the instances are merged at the end,
+ * so counting needs no synchronization.
+ *
+ * Methods:
+ * addGame(GameStatus, int, int, int) - returns void
+ * merge(SimulationStats) - returns void
+ * getGames() / getMoves() / getPlayer1Wins() / getPlayer2Wins() / getTies() - returns long
+ * getGamesPerSecond(long) / getMovesPerSecond(long) - returns double
+ * report(long) - returns String
+ *
+ ****************************************************************************/
+
+import MancalaGame.Mancala.GameStatus;
+
+public class SimulationStats {
+	private long games, moves;
+	private long player1Wins, player2Wins, ties;
+	private long marginSum;  // sum of (player 1 score - player 2 score)
+	private long player1ScoreSum;
+
+	/**
+	 * Counts one finished game
+	 */
+	public void addGame(GameStatus status, int score1, int score2, int numOfMoves) {
+		games++;
+		moves += numOfMoves;
+		marginSum += score1 - score2;
+		player1ScoreSum += score1;
+		switch (status) {
+		case PLAYER1WON:
+			player1Wins++;
+			break;
+		case PLAYER2WON:
+			player2Wins++;
+			break;
+		case TIED_GAME:
+			ties++;
+			break;
+		case IN_PROGRESS:
+			throw new IllegalArgumentException("Game is not over");
+		}
+	}
+
+	/**
+	 * Adds the counts of another instance to this one
+	 */
+	public void merge(SimulationStats other) {
+		games += other.games;
+		moves += other.moves;
+		player1Wins += other.player1Wins;
+		player2Wins += other.player2Wins;
+		ties += other.ties;
+		marginSum += other.marginSum;
+		player1ScoreSum += other.player1ScoreSum;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getMoves() {
+		return moves;
+	}
+
+	public long getPlayer1Wins() {
+		return player1Wins;
+	}
+
+	public long getPlayer2Wins() {
+		return player2Wins;
+	}
+
+	public long getTies() {
+		return ties;
+	}
+
+	public double getGamesPerSecond(long elapsedNanos) {
+		return games * 1e9 / Math.max(elapsedNanos, 1);
+	}
+
+	public double getMovesPerSecond(long elapsedNanos) {
+		return moves * 1e9 / Math.max(elapsedNanos, 1);
+	}
+
+	/**
+	 * Returns a summary of the run
+	 */
+	public String report(long elapsedNanos) {
+		double n = Math.max(games, 1);
+		return String.format("games %d, moves %d, time %.3f s%n"
+				+ "games/sec %.0f, moves/sec %.0f%n"
+				+ "player 1 wins %.2f%%, player 2 wins %.2f%%, ties %.2f%%%n"
+				+ "average moves/game %.2f, average player 1 score %.2f, average margin (1 - 2) %+.3f",
+				games, moves, elapsedNanos / 1e9,
+				getGamesPerSecond(elapsedNanos), getMovesPerSecond(elapsedNanos),
+				100 * player1Wins / n, 100 * player2Wins / n, 100 * ties / n,
+				moves / n, player1ScoreSum / n, marginSum / n);
+	}
+}
@@ -0,0 +1,106 @@
+package MancalaWithoutGUI;
+
+/****************************************************************************
+ * BatchRunner Class
+ *
+ * Purpose: This class plays move scripts (see MoveScriptReader) through the
+ * console rule engine at full speed and writes one JSON line per game, e.g.
+ * {"game":1,"line":1,"result":"player1","score1":30,"score2":18,"moves":41}
+ * result is player1, player2 or tie for a finished game; incomplete if the
+ * script ends before the game does; invalid for an illegal move or a move
+ * after the end of the game (moves is then the number of moves played
+ * before it); malformed if the line is not a list of numbers. With trace,
+ * every move and board is written before the summary. All output goes
+ * through one buffered writer, and nothing is allocated per game.
+ *
+ * Methods:
+ * BatchRunner(Writer, boolean) - constructor of this class
+ * run(MoveScriptReader) - returns long
+ * main(String[]) - BatchRunner [--batch] [script file, - for stdin] [--trace]
+ *
+ ****************************************************************************/
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class BatchRunner {
+	private final Writer out;
+	private final boolean trace;
+	private final Mancala game = new Mancala();
+	private final StringBuilder text = new StringBuilder(256);
+	private char[] chars = new char[256];  // copy of the text being written
+
+	// constructor
+	public BatchRunner(Writer out, boolean trace) {
+		this.out = out;
+		this.trace = trace;
+	}
+
+	/**
+	 * Plays every game of the script and returns the number of games
+	 */
+	public long run(MoveScriptReader script) throws IOException {
+		long games = 0;
+		while (script.nextGame()) {
+			games++;
+			game.reset();
+			text.setLength(0);
+			String result = script.isMalformed() ? "malformed" : null;
+			int ply = 0;
+			for (; result == null && ply < script.getNumOfMoves(); ply++) {
+				int move = script.getMove(ply);
+				if (game.play(move) == Mancala.Outcome.INVALID) {
+					result = "invalid";
+					break;
+				}
+				if (trace) {
+					game.formatBoard(text.append("Player ").append(game.getCurrentPlayer()).append(" to move after ").append(move).append('\n'));
+					write(text);
+					text.setLength(0);
+				}
+			}
+			if (result == null) {
+				if (game.isGameOver())
+					result = (game.getWinner() == 1) ? "player1" : (game.getWinner() == 2) ? "player2" : "tie";
+				else
+					result = "incomplete";
+			}
+
+			text.append("{\"game\":").append(games).append(",\"line\":").append(script.getLineNumber())
+				.append(",\"result\":\"").append(result).append("\",\"score1\":").append(game.getScore(1))
+				.append(",\"score2\":").append(game.getScore(2)).append(",\"moves\":").append(ply);
+			write(text.append("}\n"));
+		}
+		return games;
+	}
+
+	/**
+	 * Write the text without turning it into a String
+	 */
+	private void write(StringBuilder text) throws IOException {
+		if (chars.length < text.length())
+			chars = new char[text.length() * 2];
+		text.getChars(0, text.length(), chars, 0);
+		out.write(chars, 0, text.length());
+	}
+
+	/**
+	 * BatchRunner [--batch] [script file, - for stdin] [--trace]
+	 */
+	public static void main(String[] args) throws IOException {
+		int first = (args.length > 0 && args[0].equals("--batch")) ? 1 : 0;
+		String file = (args.length > first) ? args[first] : "-";
+		boolean trace = args.length > first + 1 && args[first + 1].equals("--trace");
+		long start = System.nanoTime();
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+		try (MoveScriptReader script = new MoveScriptReader(file.equals("-") ? System.in : new FileInputStream(file))) {
+			long games = new BatchRunner(out, trace).run(script);
+			out.flush();
+			System.err.printf("%d games in %.2f s%n", games, (System.nanoTime() - start) / 1e9);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package MancalaWithoutGUI;
+
+/****************************************************************************
+ * ConsoleGame Class
+ *
+ * Purpose: This class plays the game on the console: it shows the board,
+ * asks the player to move for a house number until a valid one is entered
+ * and hands it to the rule engine, in a loop that runs until the game is
+ * over. After a free turn the loop simply asks the same player again. At
+ * the end it shows the final score and asks whether to play again.
+ *
+ * Methods:
+ * ConsoleGame(InputStream, PrintStream) - constructor of this class
+ * run() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+import MancalaWithoutGUI.Mancala.Outcome;
+
+public class ConsoleGame {
+	private final Scanner scanner;
+	private final PrintStream out;
+	private final Mancala game = new Mancala();
+	private final StringBuilder text = new StringBuilder(256);
+
+	// constructor
+	public ConsoleGame(InputStream in, PrintStream out) {
+		scanner = new Scanner(in);
+		this.out = out;
+	}
+
+	/**
+	 * Play games until the player does not want to restart (or the input ends)
+	 */
+	public void run() {
+		do {
+			// start of game
+			game.reset();
+
+			// main game loop
+			while (!game.isGameOver()) {
+				displayBoard();
+				int move = getMove();
+				if (move < 0)
+					return;  // end of input
+				if (game.play(move) == Outcome.FREE_TURN)
+					out.println("\nFree turn for player " + game.getCurrentPlayer() + "!");
+			}
+
+			// end of game
+			displayFinalScore();
+		} while (restart());
+	}
+
+	/**
+	 * Asks the current player for their move until a valid one is entered (-1 at the end of input)
+	 */
+	private int getMove() {
+		out.println("\nIt is player " + game.getCurrentPlayer() + "'s turn. Enter a house number from "
+				+ game.getFirstHouse() + " to " + game.getLastHouse() + ":");
+
+		// loop until a valid move is selected
+		while (scanner.hasNext()) {
+			if (scanner.hasNextInt()) {
+				int move = scanner.nextInt();
+				if (game.isValidMove(move))
+					return move;
+			} else {
+				scanner.next();  // not a number
+			}
+			out.println("Invalid move. Try again.");
+		}
+		return -1;
+	}
+
+	/**
+	 * Return a boolean to determine if the player wants to restart the game
+	 */
+	private boolean restart() {
+		out.println("Restart the game? (Y/N)");
+		if (!scanner.hasNext())
+			return false;
+		char answer = scanner.next().charAt(0);
+		return answer == 'Y' || answer == 'y';
+	}
+
+	/**
+	 * Print the game board to screen.
+	 */
+	private void displayBoard() {
+		text.setLength(0);
+		out.print(game.formatBoard(text));
+	}
+
+	/**
+	 * Given the game at the end, determines the winner and prints it out.
+	 */
+	private void displayFinalScore() {
+		out.println("Game Over!");
+		out.println("\nPlayer 1 Score: " + game.getScore(1) + "\nPlayer 2 Score: " + game.getScore(2));
+
+		if (game.getWinner() == 1)  // the winner is player 1
+			out.println("\nPlayer 1 Win!!!");
+		else if (game.getWinner() == 2)
+			out.println("\nPlayer 2 Win!!!");
+		else
+			out.println("\nTied game!");
+
+		displayBoard();
+	}
+}
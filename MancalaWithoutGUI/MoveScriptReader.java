@@ -0,0 +1,144 @@
+package MancalaWithoutGUI;
+
+/****************************************************************************
+ * MoveScriptReader Class
+ *
+ * Purpose: This class reads move scripts for the console game's batch mode.
+ * A script holds one game per line: the pit numbers of its moves, as typed
+ * in the console game, separated by spaces, tabs or commas. Empty lines and
+ * lines starting with '#' are skipped. The input is read in large blocks
+ * and the numbers are parsed straight from the bytes into a reused array,
+ * so reading any number of games allocates nothing once the array has grown
+ * to the longest game.
+ *
+ * Methods:
+ * MoveScriptReader(InputStream) - constructor of this class
+ * nextGame() - returns boolean
+ * getNumOfMoves() - returns int
+ * getMove(int) - returns int
+ * isMalformed() - returns boolean
+ * getLineNumber() - returns long
+ * close() - returns void
+ *
+ ****************************************************************************/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class MoveScriptReader implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position, limit;
+
+	private int[] moves = new int[128];
+	private int numOfMoves;
+	private boolean malformed;
+	private long lineNumber;
+
+	// constructor
+	public MoveScriptReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads the next game; returns false at the end of the input
+	 */
+	public boolean nextGame() throws IOException {
+		while (true) {
+			numOfMoves = 0;
+			malformed = false;
+			int c = read();
+			if (c < 0)
+				return false;
+			lineNumber++;
+			if (c == '#') {
+				skipLine();
+				continue;
+			}
+
+			int value = -1;  // -1 while no digit of the current number has been read
+			for (; c >= 0 && c != '\n'; c = read()) {
+				if (c >= '0' && c <= '9') {
+					value = (value < 0) ? c - '0' : Math.min(value * 10 + c - '0', Integer.MAX_VALUE / 10);
+				} else if (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+					value = addMove(value);
+				} else {
+					malformed = true;
+				}
+			}
+			addMove(value);
+			if (numOfMoves > 0 || malformed)
+				return true;
+		}
+	}
+
+	/**
+	 * Appends a parsed number (if there is one) and returns -1 for the next one
+	 */
+	private int addMove(int value) {
+		if (value >= 0) {
+			if (numOfMoves == moves.length)
+				moves = Arrays.copyOf(moves, moves.length * 2);
+			moves[numOfMoves++] = value;
+		}
+		return -1;
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c >= 0 && c != '\n');
+	}
+
+	/**
+	 * Returns the next byte, or -1 at the end of the input
+	 */
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	public int getNumOfMoves() {
+		return numOfMoves;
+	}
+
+	/**
+	 * Returns the pit number of the move at the given ply
+	 */
+	public int getMove(int ply) {
+		if (ply < 0 || ply >= numOfMoves)
+			throw new IndexOutOfBoundsException("No move at ply " + ply);
+		return moves[ply];
+	}
+
+	/**
+	 * Did the line hold anything besides numbers and separators?
+	 */
+	public boolean isMalformed() {
+		return malformed;
+	}
+
+	/**
+	 * Returns the line number of the current game (counted from 1)
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
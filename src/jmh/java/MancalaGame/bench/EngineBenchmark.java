@@ -0,0 +1,291 @@
+package MancalaGame.bench;
+
+/****************************************************************************
+ * EngineBenchmark Class
+ *
+ * Purpose: This class holds the JMH benchmarks of the rule engines' hot
+ * paths: single moves at three marble densities (MancalaGame.Mancala,
+ * PackedBoard and the console engine MancalaWithoutGUI.Mancala), move
+ * checking (findPitNum included), legal-move generation, game-over
+ * detection and full random playouts. Run them with "gradle jmh", which
+ * adds the gc profiler (allocation per operation: gc.alloc.rate.norm) and
+ * writes the results as JSON, so runs of different versions can be
+ * compared.
+ *
+ * Every trial collects its own pool of positions from seeded random games,
+ * so all versions measure the same positions; an operation takes the next
+ * position of the pool.
+ *
+ * Notes:
+ * - the "load" benchmark only sets up a position; the move benchmarks
+ *   include that set-up cost
+ * - the console engine's move positions never end in a store (it used to
+ *   ask stdin for the next move after a free turn), so results compare with
+ *   earlier runs
+ *
+ ****************************************************************************/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import MancalaGame.Mancala;
+import MancalaGame.Mancala.GameStatus;
+import MancalaGame.Mancala.MoveType;
+import MancalaGame.PackedBoard;
+import MancalaGame.Sowing;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+	private static final int POOL_SIZE = 4096;  // positions per trial (power of two)
+	private static final int POOL_MASK = POOL_SIZE - 1;
+	private static final String[] DENSITIES = { "sparse", "medium", "dense" };
+
+	/**
+	 * A pool of positions of one marble density and the engines to play them on
+	 */
+	@State(Scope.Thread)
+	public static class Positions {
+		@Param({ "sparse", "medium", "dense" })  // <= 16, 17..32, > 32 marbles in the houses
+		public String density;
+
+		final int[][] boards = new int[POOL_SIZE][];
+		final int[] players = new int[POOL_SIZE];
+		final int[] moves = new int[POOL_SIZE];
+		final int[] consoleMoves = new int[POOL_SIZE];  // moves that do not end in a store
+		final PackedBoard[] packed = new PackedBoard[POOL_SIZE];
+
+		final Mancala mancala = new Mancala();
+		final Mancala inProgress = new Mancala();  // a fixed position for checkGameOver
+		final PackedBoard scratch = new PackedBoard();
+		final MancalaWithoutGUI.Mancala console = new MancalaWithoutGUI.Mancala();
+		private int next;
+
+		/**
+		 * Plays seeded random games and keeps positions of the density until the pool is full
+		 */
+		@Setup(Level.Trial)
+		public void collect() {
+			int wanted = Arrays.asList(DENSITIES).indexOf(density);
+			if (wanted < 0)
+				throw new IllegalArgumentException("Unknown density " + density);
+			SplittableRandom random = new SplittableRandom(42);
+			int[] board = new int[Mancala.BOARD_SIZE];
+			Mancala game = new Mancala();
+			int filled = 0;
+
+			while (filled < POOL_SIZE) {
+				game.reset();
+				while (game.checkGameOver() == GameStatus.IN_PROGRESS) {
+					int player = game.getPlayer();
+					int move = randomMove(game, random);
+					int consoleMove = consoleMove(game, random);
+
+					int houses = 0;
+					for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++) {
+						board[pitNum] = game.getPit(pitNum);
+						if (pitNum != Mancala.STORE1 && pitNum != Mancala.STORE2)
+							houses += board[pitNum];
+					}
+					int positionDensity = (houses <= 16) ? 0 : (houses <= 32) ? 1 : 2;
+					if (positionDensity == wanted && filled < POOL_SIZE && consoleMove >= 0
+							&& random.nextInt(4) == 0) {  // sample a quarter to spread over games
+						boards[filled] = board.clone();
+						players[filled] = player;
+						moves[filled] = move;
+						consoleMoves[filled] = consoleMove;
+						packed[filled] = new PackedBoard();
+						packed[filled].load(game);
+						filled++;
+					}
+					game.applyMove(move);
+				}
+			}
+			inProgress.load(boards[0], players[0]);
+			next = 0;
+		}
+
+		/**
+		 * Index of the position for the next operation
+		 */
+		int next() {
+			return next++ & POOL_MASK;
+		}
+	}
+
+	/**
+	 * Engines and the random generator of the playout benchmarks
+	 */
+	@State(Scope.Thread)
+	public static class Playouts {
+		final Mancala mancala = new Mancala();
+		final PackedBoard scratch = new PackedBoard();
+		long seed;  // xorshift state, so that choosing a move allocates nothing
+
+		@Setup(Level.Trial)
+		public void seed() {
+			seed = 1;
+		}
+
+		int randomPit(int firstPit) {
+			long x = seed;
+			x ^= x << 13;
+			x ^= x >>> 7;
+			x ^= x << 17;
+			seed = x;
+			return firstPit + (int) ((x >>> 33) % (Mancala.N_PITS - 1));
+		}
+	}
+
+	private static int randomMove(Mancala game, SplittableRandom random) {
+		int firstPit = (game.getPlayer() == 1) ? Mancala.STORE1 + 1 : Mancala.STORE2 + 1;
+		int pitNum;
+		do {
+			pitNum = firstPit + random.nextInt(Mancala.N_PITS - 1);
+		} while (game.checkMove(pitNum) != MoveType.SUCCESS);
+		return pitNum;
+	}
+
+	/**
+	 * A legal move that does not end in a store, or -1 if there is none
+	 */
+	private static int consoleMove(Mancala game, SplittableRandom random) {
+		int firstPit = (game.getPlayer() == 1) ? Mancala.STORE1 + 1 : Mancala.STORE2 + 1;
+		int start = random.nextInt(Mancala.N_PITS - 1);
+		for (int i = 0; i < Mancala.N_PITS - 1; i++) {
+			int pitNum = firstPit + (start + i) % (Mancala.N_PITS - 1);
+			int marbles = game.getPit(pitNum);
+			if (marbles == 0)
+				continue;
+			int lastPit = Sowing.STANDARD.lastPit(game.getPlayer(), pitNum, marbles);
+			if (lastPit != Mancala.STORE1 && lastPit != Mancala.STORE2)
+				return pitNum;
+		}
+		return -1;
+	}
+
+	@Benchmark
+	public void mancalaLoad(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.mancala.load(s.boards[p], s.players[p]);
+		blackhole.consume(s.mancala.getHash());
+	}
+
+	@Benchmark
+	public void mancalaApplyMove(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.mancala.load(s.boards[p], s.players[p]);
+		blackhole.consume(s.mancala.applyMove(s.moves[p]));
+		blackhole.consume(s.mancala.getHash());
+	}
+
+	@Benchmark
+	public void packedApplyMove(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.scratch.copyFrom(s.packed[p]);
+		blackhole.consume(s.scratch.applyMove(s.moves[p]));
+		blackhole.consume(s.scratch.getLow());
+	}
+
+	@Benchmark
+	public void consoleApplyMove(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.console.load(s.boards[p], s.players[p]);
+		blackhole.consume(s.console.play(s.consoleMoves[p]));
+		blackhole.consume(s.console.getScore(1));
+	}
+
+	/**
+	 * Sets up a position and checks a move on every cell of the board (row and column, so findPitNum is included)
+	 */
+	@Benchmark
+	public void mancalaCheckMove(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.mancala.load(s.boards[p], s.players[p]);
+		for (int cell = 0; cell < Mancala.BOARD_SIZE; cell++)
+			blackhole.consume(s.mancala.checkMove(cell / Mancala.N_PITS, cell % Mancala.N_PITS));
+	}
+
+	/**
+	 * All moves of a position (set up included, like the move benchmarks)
+	 */
+	@Benchmark
+	public void mancalaLegalMoves(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.mancala.load(s.boards[p], s.players[p]);
+		blackhole.consume(s.mancala.legalMoves());
+	}
+
+	@Benchmark
+	public void packedLegalMoves(Positions s, Blackhole blackhole) {
+		blackhole.consume(s.packed[s.next()].legalMoves());
+	}
+
+	@Benchmark
+	public void mancalaCheckGameOver(Positions s, Blackhole blackhole) {
+		blackhole.consume(s.inProgress.checkGameOver());  // in progress: does not change the board
+	}
+
+	@Benchmark
+	public void packedCheckGameOver(Positions s, Blackhole blackhole) {
+		blackhole.consume(s.packed[s.next()].checkGameOver());  // pool positions are all in progress
+	}
+
+	@Benchmark
+	public void consoleGameEnd(Positions s, Blackhole blackhole) {
+		int p = s.next();
+		s.console.load(s.boards[p], s.players[p]);  // checks for the end of the game
+		blackhole.consume(s.console.isGameOver());
+	}
+
+	/**
+	 * One random game from the start
+	 */
+	@Benchmark
+	public void mancalaRandomPlayout(Playouts s, Blackhole blackhole) {
+		Mancala mancala = s.mancala;
+		mancala.reset();
+		do {
+			int firstPit = (mancala.getPlayer() == 1) ? Mancala.STORE1 + 1 : Mancala.STORE2 + 1;
+			int pitNum;
+			do {
+				pitNum = s.randomPit(firstPit);
+			} while (mancala.getPit(pitNum) == 0);
+			mancala.applyMove(pitNum);
+		} while (mancala.checkGameOver() == GameStatus.IN_PROGRESS);
+		blackhole.consume(mancala.getPit(Mancala.STORE1));
+	}
+
+	@Benchmark
+	public void packedRandomPlayout(Playouts s, Blackhole blackhole) {
+		PackedBoard board = s.scratch;
+		board.reset();
+		do {
+			int firstPit = (board.getCurrentPlayer() == 1) ? Mancala.STORE1 + 1 : Mancala.STORE2 + 1;
+			int pitNum;
+			do {
+				pitNum = s.randomPit(firstPit);
+			} while (board.getPit(pitNum) == 0);
+			board.applyMove(pitNum);
+		} while (board.checkGameOver() == GameStatus.IN_PROGRESS);
+		blackhole.consume(board.getPit(Mancala.STORE1));
+	}
+}
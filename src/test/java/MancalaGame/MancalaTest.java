@@ -0,0 +1,75 @@
+package MancalaGame;
+
+/****************************************************************************
+ * MancalaTest Class
+ *
+ * Purpose: This class tests moves of the rule engine that the GUI never
+ * submits (checkMove rejects them first) but that callers of applyMove can
+ * still make: a move from an empty pit sows nothing, changes no pit and
+ * passes the turn, as it always has.
+ *
+ ****************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import MancalaGame.Mancala.MoveResult;
+
+class MancalaTest {
+	// player 1's house 3 and both stores are empty
+	private static final int[] BOARD = { 0, 4, 4, 0, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4 };
+
+	private static int[] pits(Mancala game) {
+		int[] pits = new int[Mancala.BOARD_SIZE];
+		for (int pitNum = 0; pitNum < Mancala.BOARD_SIZE; pitNum++)
+			pits[pitNum] = game.getPit(pitNum);
+		return pits;
+	}
+
+	@Test
+	void emptyPitSowsNothing() {
+		assertEquals(3, Sowing.STANDARD.lastPit(1, 3, 0));
+		assertEquals(Mancala.STORE1, Sowing.STANDARD.lastPit(1, Mancala.STORE1, 0));  // the first entry of the tables
+
+		int[] board = BOARD.clone();
+		assertEquals(3, Sowing.STANDARD.sow(board, 1, 3));
+		assertArrayEquals(BOARD, board);
+	}
+
+	@Test
+	void emptyHouseMovePassesTheTurn() {
+		Mancala game = new Mancala();
+		game.load(BOARD, 1);
+		assertEquals(MoveResult.NORMAL, game.applyMove(3));
+		assertArrayEquals(BOARD, pits(game));
+		assertEquals(2, game.getPlayer());
+
+		Mancala expected = new Mancala();
+		expected.load(BOARD, 2);
+		assertEquals(expected.getHash(), game.getHash());
+	}
+
+	@Test
+	void emptyStoreMovePassesTheTurn() {
+		Mancala game = new Mancala();
+		game.load(BOARD, 1);
+		assertEquals(MoveResult.NORMAL, game.applyMove(Mancala.STORE1));
+		assertArrayEquals(BOARD, pits(game));
+		assertEquals(2, game.getPlayer());
+	}
+
+	@Test
+	void emptyPitMoveCanBeTakenBack() {
+		Mancala game = new Mancala();
+		game.load(BOARD, 1);
+		long hash = game.getHash();
+		int[] undo = new int[Mancala.UNDO_SIZE];
+		assertEquals(MoveResult.NORMAL, game.makeMove(3, undo, 0));
+		game.unmakeMove(undo, 0);
+		assertArrayEquals(BOARD, pits(game));
+		assertEquals(1, game.getPlayer());
+		assertEquals(hash, game.getHash());
+	}
+}
@@ -0,0 +1,45 @@
+package MancalaGame;
+
+/****************************************************************************
+ * PackedBoardTest Class
+ *
+ * Purpose: This class tests that a move from an empty pit of a PackedBoard
+ * does the same as on a Mancala (see MancalaTest): nothing is sown, no pit
+ * changes, the turn passes and the hash only changes by the player key.
+ *
+ ****************************************************************************/
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import MancalaGame.Mancala.MoveResult;
+
+class PackedBoardTest {
+	// player 1's house 3 and both stores are empty
+	private static final int[] BOARD = { 0, 4, 4, 0, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4 };
+
+	private static void assertSameMove(int pitNum) {
+		PackedBoard packed = new PackedBoard();
+		packed.load(BOARD, 1);
+		Mancala mancala = new Mancala();
+		mancala.load(BOARD, 1);
+
+		assertEquals(MoveResult.NORMAL, packed.applyMove(pitNum));
+		assertEquals(MoveResult.NORMAL, mancala.applyMove(pitNum));
+		for (int i = 0; i < Mancala.BOARD_SIZE; i++)
+			assertEquals(mancala.getPit(i), packed.getPit(i), "pit " + i);
+		assertEquals(mancala.getPlayer(), packed.getCurrentPlayer());
+		assertEquals(mancala.getHash(), packed.getHash());
+	}
+
+	@Test
+	void emptyHouseMovePassesTheTurn() {
+		assertSameMove(3);
+	}
+
+	@Test
+	void emptyStoreMovePassesTheTurn() {
+		assertSameMove(Mancala.STORE1);
+	}
+}